@@ -0,0 +1,91 @@
+package com.paypulse.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Money against BigDecimal on the ledger's hot path: apply a batch of signed deltas to a balance, rejecting any
+// delta that would overdraw it. Run with ./gradlew :paypulse-common:jmh
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoneyBenchmark {
+
+    @Param({"1000"})
+    private int operations;
+
+    private Money[] moneyDeltas;
+    private BigDecimal[] decimalDeltas;
+    private String[] amounts;
+    private Money moneyStart;
+    private BigDecimal decimalStart;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        moneyDeltas = new Money[operations];
+        decimalDeltas = new BigDecimal[operations];
+        amounts = new String[operations];
+        for (int i = 0; i < operations; i++) {
+            long minor = random.nextInt(100_000) - 50_000;
+            moneyDeltas[i] = Money.ofMinor(minor, Money.DEFAULT_CURRENCY);
+            decimalDeltas[i] = BigDecimal.valueOf(minor, 2);
+            amounts[i] = decimalDeltas[i].toPlainString();
+        }
+        moneyStart = Money.ofMinor(1_000_000, Money.DEFAULT_CURRENCY);
+        decimalStart = BigDecimal.valueOf(1_000_000, 2);
+    }
+
+    @Benchmark
+    public Money applyMoney() {
+        Money balance = moneyStart;
+        for (Money delta : moneyDeltas) {
+            Money updated = balance.plus(delta);
+            if (!updated.isNegative()) {
+                balance = updated;
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public BigDecimal applyBigDecimal() {
+        BigDecimal balance = decimalStart;
+        for (BigDecimal delta : decimalDeltas) {
+            BigDecimal updated = balance.add(delta);
+            if (updated.signum() >= 0) {
+                balance = updated;
+            }
+        }
+        return balance;
+    }
+
+    // The boundary cost Money pays where amounts enter as decimals (requests, numeric columns).
+    @Benchmark
+    public long parseMoney() {
+        long sum = 0;
+        for (String amount : amounts) {
+            sum += Money.of(new BigDecimal(amount)).minor();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (String amount : amounts) {
+            sum = sum.add(new BigDecimal(amount).setScale(2, RoundingMode.UNNECESSARY));
+        }
+        return sum;
+    }
+}
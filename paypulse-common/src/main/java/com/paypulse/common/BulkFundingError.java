@@ -0,0 +1,7 @@
+package com.paypulse.common;
+
+public record BulkFundingError(
+        long line,
+        String reason
+) {
+}
@@ -0,0 +1,22 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkFundingResponse(
+        UUID jobId,
+        String status,
+        long rowsRead,
+        long rowsApplied,
+        long rowsRejected,
+        long chunksCommitted,
+        long lastCommittedLine,
+        BigDecimal totalAmount,
+        Instant startedAt,
+        Instant finishedAt,
+        String failure,
+        List<BulkFundingError> errors
+) {
+}
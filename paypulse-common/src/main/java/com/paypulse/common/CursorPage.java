@@ -0,0 +1,9 @@
+package com.paypulse.common;
+
+import java.util.List;
+
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor
+) {
+}
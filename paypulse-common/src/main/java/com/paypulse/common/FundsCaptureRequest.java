@@ -0,0 +1,9 @@
+package com.paypulse.common;
+
+import java.util.UUID;
+
+public record FundsCaptureRequest(
+        UUID toUserId,
+        String description
+) {
+}
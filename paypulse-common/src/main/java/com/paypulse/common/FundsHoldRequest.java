@@ -0,0 +1,21 @@
+package com.paypulse.common;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+public record FundsHoldRequest(
+        @NotNull(message = "Сумма блокировки не может быть пустой")
+        @Positive(message = "Сумма блокировки должна быть положительной")
+        BigDecimal amount,
+
+        @NotBlank(message = "Описание операции обязательно для заполнения")
+        String description,
+
+        @Size(max = 255)
+        String reference
+) {
+}
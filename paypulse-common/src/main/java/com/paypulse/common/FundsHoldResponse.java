@@ -0,0 +1,13 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record FundsHoldResponse(
+        UUID holdId,
+        UUID userId,
+        BigDecimal amount,
+        String status,
+        String reference
+) {
+}
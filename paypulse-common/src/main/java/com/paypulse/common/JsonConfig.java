@@ -12,6 +12,7 @@ public class JsonConfig {
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new MoneyJsonModule());
         return mapper;
     }
 } 
\ No newline at end of file
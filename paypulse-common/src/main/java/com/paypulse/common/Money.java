@@ -0,0 +1,86 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Objects;
+
+// Fixed-point amount in minor units (kopecks, cents) so hot-path arithmetic stays on primitive longs.
+public record Money(long minor, String currency) implements Comparable<Money> {
+
+    public static final String DEFAULT_CURRENCY = "RUB";
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money zero() {
+        return new Money(0, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minor, String currency) {
+        return new Money(minor, currency);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    public static Money of(BigDecimal amount, String currency) {
+        try {
+            return new Money(amount.movePointRight(scale(currency)).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " cannot be represented in " + currency);
+        }
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(minor, other.minor), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(minor, other.minor), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minor), currency);
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    public boolean isNegative() {
+        return minor < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minor, other.minor);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, scale(currency));
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    private static int scale(String currency) {
+        return Currency.getInstance(currency).getDefaultFractionDigits();
+    }
+}
@@ -0,0 +1,75 @@
+package com.paypulse.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// Writes Money as {"minor":1050,"currency":"RUB"}; also reads plain decimals ("10.50" or 10.50) in the default currency.
+public class MoneyJsonModule extends SimpleModule {
+
+    public MoneyJsonModule() {
+        super("MoneyJsonModule");
+        addSerializer(Money.class, new MoneySerializer());
+        addDeserializer(Money.class, new MoneyDeserializer());
+    }
+
+    static class MoneySerializer extends StdSerializer<Money> {
+
+        MoneySerializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("minor", value.minor());
+            generator.writeStringField("currency", value.currency());
+            generator.writeEndObject();
+        }
+    }
+
+    static class MoneyDeserializer extends StdDeserializer<Money> {
+
+        MoneyDeserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return Money.of(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return Money.of(new BigDecimal(parser.getText().trim()));
+            }
+            if (token != JsonToken.START_OBJECT) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+
+            Long minor = null;
+            String currency = Money.DEFAULT_CURRENCY;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "minor" -> minor = parser.getLongValue();
+                    case "currency" -> currency = parser.getText();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (minor == null) {
+                return context.reportInputMismatch(this, "Money requires a 'minor' field");
+            }
+            return Money.ofMinor(minor, currency);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record StatementLine(
+        LocalDate period,
+        BigDecimal credits,
+        BigDecimal debits,
+        long transactionCount,
+        BigDecimal closingBalance
+) {
+}
@@ -0,0 +1,19 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record StatementResponse(
+        UUID userId,
+        LocalDate from,
+        LocalDate to,
+        BigDecimal openingBalance,
+        BigDecimal closingBalance,
+        BigDecimal totalCredits,
+        BigDecimal totalDebits,
+        long transactionCount,
+        List<StatementLine> lines
+) {
+}
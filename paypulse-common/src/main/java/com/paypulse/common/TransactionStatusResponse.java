@@ -0,0 +1,17 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record TransactionStatusResponse(
+        UUID id,
+        UUID fromUserId,
+        UUID toUserId,
+        BigDecimal amount,
+        String status,
+        String failureReason,
+        Instant createdAt,
+        Instant updatedAt
+) {
+}
@@ -0,0 +1,94 @@
+package com.paypulse.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+// Reports virtual threads that stay pinned to their carrier (synchronized blocks, native frames) via JFR.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${paypulse.virtual-threads.pinned-threshold-ms:20}")
+    private long pinnedThresholdMs;
+
+    @Value("${paypulse.virtual-threads.pinned-stack-depth:8}")
+    private int stackDepth;
+
+    private RecordingStream stream;
+    private Counter pinnedCount;
+    private Timer pinnedDuration;
+
+    public VirtualThreadPinningMonitor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            pinnedCount = Counter.builder("jvm_virtual_threads_pinned_total")
+                    .description("Virtual threads pinned to their carrier longer than the threshold")
+                    .register(registry);
+            pinnedDuration = Timer.builder("jvm_virtual_threads_pinned_duration")
+                    .description("Time virtual threads spent pinned to their carrier")
+                    .register(registry);
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(pinnedThresholdMs))
+                .withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual threads enabled, reporting carrier pinning longer than {} ms", pinnedThresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        if (pinnedCount != null) {
+            pinnedCount.increment();
+            pinnedDuration.record(event.getDuration());
+        }
+        log.warn("Virtual thread {} pinned for {} ms at {}",
+                event.getThread() != null ? event.getThread().getJavaName() : "?",
+                event.getDuration().toMillis(), describe(event.getStackTrace()));
+    }
+
+    private String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown location";
+        }
+        return stackTrace.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .limit(stackDepth)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+    }
+}
@@ -0,0 +1,37 @@
+package com.paypulse.common;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record WalletBatchOperation(
+        @NotNull(message = "ID пользователя обязателен")
+        UUID userId,
+
+        @NotNull(message = "Тип операции обязателен")
+        Type type,
+
+        @NotNull(message = "Сумма операции не может быть пустой")
+        @Positive(message = "Сумма операции должна быть положительной")
+        BigDecimal amount,
+
+        @NotBlank(message = "Описание операции обязательно для заполнения")
+        String description,
+
+        // Recipient of a TRANSFER; userId is the sender.
+        UUID toUserId,
+
+        // Optional for a TRANSFER; one repeated with the same reference is applied once.
+        @Size(max = 255)
+        String reference
+) {
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER
+    }
+}
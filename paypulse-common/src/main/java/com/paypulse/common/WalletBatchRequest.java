@@ -0,0 +1,14 @@
+package com.paypulse.common;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record WalletBatchRequest(
+        @NotEmpty(message = "Список операций не может быть пустым")
+        @Size(max = 1000, message = "Не более 1000 операций в одном запросе")
+        List<@Valid WalletBatchOperation> operations
+) {
+}
@@ -0,0 +1,10 @@
+package com.paypulse.common;
+
+import java.util.List;
+
+public record WalletBatchResponse(
+        int succeeded,
+        int failed,
+        List<WalletBatchResult> results
+) {
+}
@@ -0,0 +1,16 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// unknown marks an operation whose outcome the wallet could not confirm, e.g. a ledger commit that timed out but may
+// still apply; it is not a rejection.
+public record WalletBatchResult(
+        int index,
+        UUID userId,
+        boolean success,
+        BigDecimal balance,
+        String error,
+        boolean unknown
+) {
+}
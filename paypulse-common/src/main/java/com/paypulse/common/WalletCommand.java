@@ -0,0 +1,18 @@
+package com.paypulse.common;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Saga command for wallet-service, published keyed by userId so one wallet's commands stay in order.
+public record WalletCommand(
+        UUID commandId,
+        UUID transactionId,
+        String type,
+        UUID userId,
+        BigDecimal amount,
+        String description
+) {
+    public static final String RESERVE = "RESERVE";
+    public static final String CREDIT = "CREDIT";
+    public static final String COMPENSATE = "COMPENSATE";
+}
@@ -0,0 +1,13 @@
+package com.paypulse.common;
+
+import java.util.UUID;
+
+public record WalletCommandReply(
+        UUID commandId,
+        UUID transactionId,
+        String type,
+        UUID userId,
+        boolean success,
+        String reason
+) {
+}
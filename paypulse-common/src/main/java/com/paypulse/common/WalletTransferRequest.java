@@ -0,0 +1,29 @@
+package com.paypulse.common;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record WalletTransferRequest(
+        @NotNull(message = "ID отправителя обязателен")
+        UUID fromUserId,
+
+        @NotNull(message = "ID получателя обязателен")
+        UUID toUserId,
+
+        @NotNull(message = "Сумма перевода не может быть пустой")
+        @Positive(message = "Сумма перевода должна быть положительной")
+        BigDecimal amount,
+
+        @NotBlank(message = "Описание операции обязательно для заполнения")
+        String description,
+
+        // Optional; a transfer repeated with the same reference is applied once.
+        @Size(max = 255)
+        String reference
+) {
+}
@@ -0,0 +1,38 @@
+package com.paypulse.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyConverterTest {
+
+    private final MoneyConverter converter = new MoneyConverter();
+
+    @Test
+    void writesTheDecimalAmount() {
+        BigDecimal column = converter.convertToDatabaseColumn(Money.ofMinor(1050, "RUB"));
+
+        assertThat(column).isEqualTo(new BigDecimal("10.50"));
+    }
+
+    @Test
+    void readsColumnsInTheDefaultCurrency() {
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("10.50"))).isEqualTo(Money.ofMinor(1050, "RUB"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("7"))).isEqualTo(Money.ofMinor(700, "RUB"));
+    }
+
+    @Test
+    void passesNullsThrough() {
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void rejectsColumnsFinerThanMinorUnits() {
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(new BigDecimal("0.001")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
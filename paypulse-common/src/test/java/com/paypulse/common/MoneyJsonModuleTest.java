@@ -0,0 +1,52 @@
+package com.paypulse.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyJsonModuleTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new MoneyJsonModule());
+
+    record Payment(String id, Money amount) {
+    }
+
+    @Test
+    void writesMinorUnitsAndCurrency() throws Exception {
+        assertThat(mapper.writeValueAsString(Money.ofMinor(1050, "RUB"))).isEqualTo("{\"minor\":1050,\"currency\":\"RUB\"}");
+    }
+
+    @Test
+    void roundTripsInsideOtherObjects() throws Exception {
+        Payment payment = new Payment("p-1", Money.ofMinor(-42, "USD"));
+
+        String json = mapper.writeValueAsString(payment);
+
+        assertThat(mapper.readValue(json, Payment.class)).isEqualTo(payment);
+    }
+
+    @Test
+    void readsPlainDecimalsInTheDefaultCurrency() throws Exception {
+        assertThat(mapper.readValue("10.50", Money.class)).isEqualTo(Money.ofMinor(1050, "RUB"));
+        assertThat(mapper.readValue("10", Money.class)).isEqualTo(Money.ofMinor(1000, "RUB"));
+        assertThat(mapper.readValue("\" 10.5 \"", Money.class)).isEqualTo(Money.ofMinor(1050, "RUB"));
+    }
+
+    @Test
+    void defaultsTheCurrencyAndSkipsUnknownFields() throws Exception {
+        Money money = mapper.readValue("{\"extra\":{\"nested\":[1,2]},\"minor\":5}", Money.class);
+
+        assertThat(money).isEqualTo(Money.ofMinor(5, "RUB"));
+    }
+
+    @Test
+    void rejectsObjectsWithoutMinorUnits() {
+        assertThatThrownBy(() -> mapper.readValue("{\"currency\":\"RUB\"}", Money.class))
+                .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> mapper.readValue("[1]", Money.class))
+                .isInstanceOf(MismatchedInputException.class);
+    }
+}
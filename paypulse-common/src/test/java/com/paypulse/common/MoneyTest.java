@@ -0,0 +1,88 @@
+package com.paypulse.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void convertsDecimalsToMinorUnitsOfTheCurrency() {
+        assertThat(Money.of(new BigDecimal("10.5"))).isEqualTo(Money.ofMinor(1050, "RUB"));
+        assertThat(Money.of(new BigDecimal("10.500"))).isEqualTo(Money.ofMinor(1050, "RUB"));
+        assertThat(Money.of(new BigDecimal("-0.01"))).isEqualTo(Money.ofMinor(-1, "RUB"));
+        assertThat(Money.of(new BigDecimal("1050"), "JPY")).isEqualTo(Money.ofMinor(1050, "JPY"));
+        assertThat(Money.of(new BigDecimal("1.5"), "KWD")).isEqualTo(Money.ofMinor(1500, "KWD"));
+    }
+
+    @Test
+    void rejectsAmountsFinerThanTheCurrencyScale() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("10.505")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("10.505");
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.5"), "JPY"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsAmountsBeyondTheLongRange() {
+        BigDecimal max = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+
+        assertThat(Money.of(max).minor()).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> Money.of(max.add(new BigDecimal("0.01"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsUnknownCurrencies() {
+        assertThatThrownBy(() -> Money.of(BigDecimal.ONE, "XYZ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void addsAndSubtractsMinorUnits() {
+        Money a = Money.ofMinor(1050, "RUB");
+        Money b = Money.ofMinor(-75, "RUB");
+
+        assertThat(a.plus(b)).isEqualTo(Money.ofMinor(975, "RUB"));
+        assertThat(a.minus(b)).isEqualTo(Money.ofMinor(1125, "RUB"));
+        assertThat(b.negate()).isEqualTo(Money.ofMinor(75, "RUB"));
+        assertThat(a.plus(b).toBigDecimal()).isEqualByComparingTo("9.75");
+    }
+
+    @Test
+    void failsInsteadOfWrappingOnOverflow() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, "RUB");
+        Money min = Money.ofMinor(Long.MIN_VALUE, "RUB");
+        Money one = Money.ofMinor(1, "RUB");
+
+        assertThatThrownBy(() -> max.plus(one)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> min.minus(one)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(min::negate).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void rejectsArithmeticAcrossCurrencies() {
+        Money rub = Money.ofMinor(100, "RUB");
+        Money usd = Money.ofMinor(100, "USD");
+
+        assertThatThrownBy(() -> rub.plus(usd)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rub.minus(usd)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rub.compareTo(usd)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void comparesAndFormats() {
+        Money small = Money.ofMinor(-5, "RUB");
+        Money large = Money.ofMinor(1050, "RUB");
+
+        assertThat(small.isLessThan(large)).isTrue();
+        assertThat(small.isNegative()).isTrue();
+        assertThat(small.signum()).isEqualTo(-1);
+        assertThat(Money.zero().signum()).isZero();
+        assertThat(large).hasToString("10.50 RUB");
+        assertThat(small).hasToString("-0.05 RUB");
+    }
+}
@@ -0,0 +1,174 @@
+package com.paypulse.transaction.client;
+
+import com.paypulse.common.Money;
+import com.paypulse.common.WalletBatchOperation;
+import com.paypulse.common.WalletBatchResponse;
+import com.paypulse.common.WalletBatchResult;
+import com.paypulse.transaction.config.ServiceTokenProvider;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces wallet operations of concurrent sagas into /wallet/internal/batch calls. A batch is sent when it reaches
+// max-size operations or window-ms after its first operation, whichever comes first; each caller gets back the result
+// at its own index. A failed batch fails all of its operations with a BatchFailedException, an unknown outcome: the
+// raw HTTP error is not passed on, so a 5xx on the batch call is never taken as a rejection of every operation in it.
+// A single result the wallet marks unknown fails its caller the same way.
+@Slf4j
+@Component
+public class WalletBatcher {
+
+    private final WalletClient walletClient;
+    private final ServiceTokenProvider serviceTokens;
+    private final DistributionSummary batchSizes;
+
+    @Value("${saga.batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${saga.batching.window-ms:2}")
+    private long windowMs;
+
+    @Value("${saga.batching.max-size:100}")
+    private int maxSize;
+
+    private final Object lock = new Object();
+    private List<Pending> buffer = new ArrayList<>();
+    private ScheduledExecutorService timer;
+
+    public WalletBatcher(WalletClient walletClient, ServiceTokenProvider serviceTokens, MeterRegistry meterRegistry) {
+        this.walletClient = walletClient;
+        this.serviceTokens = serviceTokens;
+        this.batchSizes = DistributionSummary.builder("wallet_batch_size")
+                .description("Saga wallet operations sent per batch call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "wallet-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        timer.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<Boolean> withdraw(UUID userId, Money amount, String description) {
+        return submit(new WalletBatchOperation(userId, WalletBatchOperation.Type.WITHDRAW,
+                amount.toBigDecimal(), description, null, null));
+    }
+
+    public Mono<Boolean> deposit(UUID userId, Money amount, String description) {
+        return submit(new WalletBatchOperation(userId, WalletBatchOperation.Type.DEPOSIT,
+                amount.toBigDecimal(), description, null, null));
+    }
+
+    public Mono<Boolean> transfer(UUID fromUserId, UUID toUserId, Money amount, String description, String reference) {
+        return submit(new WalletBatchOperation(fromUserId, WalletBatchOperation.Type.TRANSFER,
+                amount.toBigDecimal(), description, toUserId, reference));
+    }
+
+    // Emits false when the wallet rejected the operation, e.g. for insufficient funds.
+    private Mono<Boolean> submit(WalletBatchOperation operation) {
+        return Mono.defer(() -> {
+            Pending pending = new Pending(operation, Sinks.one());
+            List<Pending> full = null;
+            synchronized (lock) {
+                buffer.add(pending);
+                if (buffer.size() >= maxSize) {
+                    full = take();
+                } else if (buffer.size() == 1) {
+                    timer.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (full != null) {
+                send(full);
+            }
+            return pending.result.asMono();
+        }).map(result -> {
+            if (!result.success()) {
+                log.warn("Wallet rejected {} of user {}: {}", operation.type(), operation.userId(), result.error());
+            }
+            return result.success();
+        });
+    }
+
+    // A timer left over from a batch that already went out on size just sends the next, younger batch early.
+    private void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            batch = take();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private List<Pending> take() {
+        List<Pending> batch = buffer;
+        buffer = new ArrayList<>();
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        List<WalletBatchOperation> operations = batch.stream().map(Pending::operation).toList();
+        walletClient.batch(operations, serviceTokens.serviceToken())
+                .subscribe(response -> demultiplex(batch, response), error -> {
+                    log.error("Wallet batch of {} operations failed: {}", batch.size(), error.getMessage());
+                    BatchFailedException failure = new BatchFailedException(batch.size(), error);
+                    batch.forEach(pending -> pending.result.tryEmitError(failure));
+                });
+    }
+
+    private static void demultiplex(List<Pending> batch, WalletBatchResponse response) {
+        WalletBatchResult[] byIndex = new WalletBatchResult[batch.size()];
+        for (WalletBatchResult result : response.results()) {
+            if (result.index() >= 0 && result.index() < byIndex.length) {
+                byIndex[result.index()] = result;
+            }
+        }
+        for (int i = 0; i < byIndex.length; i++) {
+            if (byIndex[i] != null && byIndex[i].unknown()) {
+                batch.get(i).result.tryEmitError(new IllegalStateException("Wallet could not confirm operation " + i
+                        + " of the batch: " + byIndex[i].error()));
+            } else if (byIndex[i] != null) {
+                batch.get(i).result.tryEmitValue(byIndex[i]);
+            } else {
+                batch.get(i).result.tryEmitError(new IllegalStateException("Wallet batch returned no result for operation " + i));
+            }
+        }
+    }
+
+    private record Pending(WalletBatchOperation operation, Sinks.One<WalletBatchResult> result) {
+    }
+
+    public static final class BatchFailedException extends RuntimeException {
+        private BatchFailedException(int size, Throwable cause) {
+            super("Wallet batch of " + size + " operations failed: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.paypulse.transaction.client;
+
+import com.paypulse.common.DepositRequest;
+import com.paypulse.common.FundsCaptureRequest;
+import com.paypulse.common.FundsHoldRequest;
+import com.paypulse.common.FundsHoldResponse;
+import com.paypulse.common.Money;
+import com.paypulse.common.WalletBatchOperation;
+import com.paypulse.common.WalletBatchRequest;
+import com.paypulse.common.WalletBatchResponse;
+import com.paypulse.common.WalletTransferRequest;
+import com.paypulse.common.WithdrawRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Typed client of wallet-service for the saga. All calls share one Reactor Netty pool; each call goes to the
+// discovered instance with the fewest requests outstanding from this client.
+@Slf4j
+@Component
+public class WalletClient {
+
+    private final WebClient.Builder webClientBuilder;
+    private final DiscoveryClient discoveryClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${wallet.client.service-id:wallet-service}")
+    private String serviceId;
+
+    @Value("${wallet.client.fallback-url:http://wallet-service:8082}")
+    private String fallbackUrl;
+
+    @Value("${wallet.client.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${wallet.client.pending-acquire-max:2000}")
+    private int pendingAcquireMax;
+
+    @Value("${wallet.client.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${wallet.client.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs;
+
+    @Value("${wallet.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${wallet.client.timeouts.withdraw-ms:3000}")
+    private long withdrawTimeoutMs;
+
+    @Value("${wallet.client.timeouts.transfer-ms:5000}")
+    private long transferTimeoutMs;
+
+    @Value("${wallet.client.timeouts.deposit-ms:3000}")
+    private long depositTimeoutMs;
+
+    @Value("${wallet.client.timeouts.holds-ms:3000}")
+    private long holdsTimeoutMs;
+
+    @Value("${wallet.client.timeouts.batch-ms:5000}")
+    private long batchTimeoutMs;
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private volatile List<Endpoint> endpoints = List.of();
+    // Outstanding counters survive instance list refreshes so in-flight calls are still accounted for.
+    private final Map<String, Endpoint> known = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public WalletClient(WebClient.Builder webClientBuilder, DiscoveryClient discoveryClient, MeterRegistry meterRegistry) {
+        this.webClientBuilder = webClientBuilder;
+        this.discoveryClient = discoveryClient;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        connectionProvider = ConnectionProvider.builder("wallet-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleTimeMs))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .keepAlive(true);
+        webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        refreshInstances();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.client.refresh-interval-ms:30000}")
+    public void refreshInstances() {
+        List<String> urls = new ArrayList<>();
+        try {
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                urls.add(instance.getUri().toString());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to discover {} instances, keeping {}: {}", serviceId, endpoints.size(), e.getMessage());
+            return;
+        }
+        if (urls.isEmpty()) {
+            urls.add(fallbackUrl);
+        }
+        List<Endpoint> refreshed = urls.stream().map(url -> known.computeIfAbsent(url, this::endpoint)).toList();
+        if (!refreshed.equals(endpoints)) {
+            log.info("Wallet client now balances over {}", urls);
+        }
+        endpoints = refreshed;
+    }
+
+    public Mono<Boolean> withdraw(UUID userId, Money amount, String accessToken) {
+        WithdrawRequest withdrawRequest = new WithdrawRequest(amount.toBigDecimal(), "Reserve for transaction");
+        return call("withdraw", withdrawTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/withdraw")
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(withdrawRequest)
+                .httpRequest(timeout(withdrawTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return Mono.just(true);
+                    if (resp.statusCode().value() == 400) {
+                        log.warn("Insufficient funds for user {}", userId);
+                        return Mono.just(false);
+                    }
+                    log.error("Unexpected status {} on reserve funds for user {}", resp.statusCode(), userId);
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    // A transfer repeated with the same reference is applied once.
+    public Mono<Boolean> transfer(UUID fromUserId, UUID toUserId, Money amount, String reference, String accessToken) {
+        WalletTransferRequest transferRequest = new WalletTransferRequest(
+                fromUserId, toUserId, amount.toBigDecimal(), "Transaction transfer", reference);
+        return call("transfer", transferTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/internal/transfer")
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(transferRequest)
+                .httpRequest(timeout(transferTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return Mono.just(true);
+                    if (resp.statusCode().value() == 400) {
+                        log.warn("Transfer rejected for user {}: insufficient funds or invalid request", fromUserId);
+                        return Mono.just(false);
+                    }
+                    log.error("Unexpected status {} on transfer from user {}", resp.statusCode(), fromUserId);
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    public Mono<Boolean> deposit(UUID userId, Money amount, String description, String accessToken) {
+        DepositRequest depositRequest = new DepositRequest(amount.toBigDecimal(), description);
+        return call("deposit", depositTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/internal/deposit/" + userId)
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(depositRequest)
+                .httpRequest(timeout(depositTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return Mono.just(true);
+                    log.error("Failed to deposit funds to user {}, status: {}", userId, resp.statusCode());
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    // Empty when the wallet refused the hold for lack of funds.
+    public Mono<FundsHoldResponse> reserveHold(UUID userId, Money amount, String reference, String accessToken) {
+        FundsHoldRequest holdRequest = new FundsHoldRequest(amount.toBigDecimal(), "Reserve for transaction", reference);
+        return call("reserveHold", holdsTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/holds")
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(holdRequest)
+                .httpRequest(timeout(holdsTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return resp.bodyToMono(FundsHoldResponse.class);
+                    if (resp.statusCode().value() == 400) {
+                        log.warn("Insufficient funds for user {}", userId);
+                        return Mono.<FundsHoldResponse>empty();
+                    }
+                    log.error("Unexpected status {} on reserve hold for user {}", resp.statusCode(), userId);
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    public Mono<FundsHoldResponse> captureHold(UUID holdId, UUID toUserId, String accessToken) {
+        FundsCaptureRequest captureRequest = new FundsCaptureRequest(toUserId, "Transaction transfer");
+        return call("captureHold", holdsTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/holds/" + holdId + "/capture")
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(captureRequest)
+                .httpRequest(timeout(holdsTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return resp.bodyToMono(FundsHoldResponse.class);
+                    log.error("Failed to capture hold {}, status: {}", holdId, resp.statusCode());
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    public Mono<FundsHoldResponse> releaseHold(UUID holdId, String accessToken) {
+        return call("releaseHold", holdsTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/holds/" + holdId + "/release")
+                .header("Authorization", "Bearer " + accessToken)
+                .httpRequest(timeout(holdsTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return resp.bodyToMono(FundsHoldResponse.class);
+                    log.error("Failed to release hold {}, status: {}", holdId, resp.statusCode());
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    public Mono<WalletBatchResponse> batch(List<WalletBatchOperation> operations, String serviceToken) {
+        WalletBatchRequest batchRequest = new WalletBatchRequest(operations);
+        return call("batch", batchTimeoutMs, (client, endpoint) -> client.post()
+                .uri(endpoint.baseUrl + "/wallet/internal/batch")
+                .header("Authorization", "Bearer " + serviceToken)
+                .bodyValue(batchRequest)
+                .httpRequest(timeout(batchTimeoutMs))
+                .exchangeToMono(resp -> {
+                    if (resp.statusCode().value() == 200) return resp.bodyToMono(WalletBatchResponse.class);
+                    log.error("Wallet batch of {} operations failed, status: {}", operations.size(), resp.statusCode());
+                    return resp.createException().flatMap(Mono::error);
+                }));
+    }
+
+    private <T> Mono<T> call(String operation, long timeoutMs, CallSpec<T> spec) {
+        return Mono.defer(() -> {
+            Endpoint endpoint = choose();
+            endpoint.outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            return spec.exchange(webClient, endpoint)
+                    // Backstop for time spent before the response timeout applies, e.g. waiting for a pooled connection.
+                    .timeout(Duration.ofMillis(timeoutMs + pendingAcquireTimeoutMs))
+                    .doFinally(signal -> {
+                        endpoint.outstanding.decrementAndGet();
+                        timer(operation, endpoint, signal).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    // Least outstanding requests; scanning from a random offset spreads ties.
+    private Endpoint choose() {
+        List<Endpoint> current = endpoints;
+        if (current.isEmpty()) {
+            return known.computeIfAbsent(fallbackUrl, this::endpoint);
+        }
+        int offset = ThreadLocalRandom.current().nextInt(current.size());
+        Endpoint best = null;
+        for (int i = 0; i < current.size(); i++) {
+            Endpoint candidate = current.get((offset + i) % current.size());
+            if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static Consumer<ClientHttpRequest> timeout(long timeoutMs) {
+        return request -> {
+            HttpClientRequest nativeRequest = request.getNativeRequest();
+            nativeRequest.responseTimeout(Duration.ofMillis(timeoutMs));
+        };
+    }
+
+    private Timer timer(String operation, Endpoint endpoint, SignalType signal) {
+        String outcome = switch (signal) {
+            case ON_COMPLETE -> "success";
+            case CANCEL -> "cancelled";
+            default -> "error";
+        };
+        return timers.computeIfAbsent(operation + '|' + endpoint.baseUrl + '|' + outcome,
+                key -> Timer.builder("wallet_client_request_duration_seconds")
+                        .description("Latency of saga calls to wallet-service by endpoint, instance and outcome")
+                        .tag("endpoint", operation)
+                        .tag("instance", endpoint.baseUrl)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private Endpoint endpoint(String baseUrl) {
+        Endpoint endpoint = new Endpoint(baseUrl);
+        Gauge.builder("wallet_client_outstanding_requests", endpoint.outstanding, AtomicInteger::get)
+                .description("Requests to a wallet-service instance awaiting a response")
+                .tag("instance", baseUrl)
+                .register(meterRegistry);
+        return endpoint;
+    }
+
+    @FunctionalInterface
+    private interface CallSpec<T> {
+        Mono<T> exchange(WebClient client, Endpoint endpoint);
+    }
+
+    private static final class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+    }
+}
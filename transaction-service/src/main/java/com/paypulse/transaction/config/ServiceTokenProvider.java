@@ -0,0 +1,46 @@
+package com.paypulse.transaction.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.UUID;
+
+// Short-lived tokens that let background saga work act on a user's wallet after the user's own token has expired.
+@Service
+public class ServiceTokenProvider {
+
+    private final Key key;
+    private final long ttlMs;
+
+    public ServiceTokenProvider(@Value("${jwt.secret}") String secret,
+                                @Value("${jwt.service-token-ttl-ms:300000}") long ttlMs) {
+        if (secret == null || secret.length() < 32) {
+            throw new IllegalArgumentException("JWT secret must be at least 32 chars for HS256");
+        }
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.ttlMs = ttlMs;
+    }
+
+    // For calls that act on many users' wallets at once, such as saga batches; the subject is the nil UUID.
+    public String serviceToken() {
+        return tokenFor(new UUID(0L, 0L));
+    }
+
+    public String tokenFor(UUID userId) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(userId.toString())
+                .claim("username", "transaction-service")
+                .claim("roles", "SERVICE")
+                .claim("type", "service")
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttlMs))
+                .signWith(key)
+                .compact();
+    }
+}
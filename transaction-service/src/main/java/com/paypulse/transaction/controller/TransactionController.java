@@ -1,7 +1,9 @@
 package com.paypulse.transaction.controller;
 
+import com.paypulse.common.CursorPage;
 import com.paypulse.common.TransactionRequest;
 import com.paypulse.common.TransactionResponse;
+import com.paypulse.common.TransactionStatusResponse;
 import com.paypulse.transaction.service.OutboxMetricsService;
 import com.paypulse.transaction.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping({"/api/transactions", "/transactions"})
@@ -24,8 +27,24 @@ public class TransactionController {
     @Operation(summary = "Создать транзакцию")
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public TransactionResponse create(@Valid @RequestBody TransactionRequest request) {
-        return service.create(request);
+    public TransactionResponse create(@Valid @RequestBody TransactionRequest request,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return service.create(request, idempotencyKey);
+    }
+
+    @Operation(summary = "Создать транзакцию асинхронно")
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public TransactionStatusResponse createAsync(@Valid @RequestBody TransactionRequest request,
+                                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return service.createAsync(request, idempotencyKey);
+    }
+
+    @Operation(summary = "Статус транзакции")
+    @GetMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public TransactionStatusResponse getStatus(@PathVariable UUID id) {
+        return service.getStatus(id);
     }
 
     @Operation(summary = "История транзакций пользователя")
@@ -35,6 +54,15 @@ public class TransactionController {
         return service.getHistory();
     }
 
+    @Operation(summary = "История транзакций пользователя (курсорная пагинация)")
+    @GetMapping("/history/cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<TransactionResponse> getHistoryByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return service.getHistoryByCursor(cursor, size);
+    }
+
     @Operation(summary = "Метрики outbox")
     @GetMapping("/outbox-metrics")
     @ResponseStatus(HttpStatus.OK)
@@ -0,0 +1,51 @@
+package com.paypulse.transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    // The client's key scoped by user: "<userId>:<Idempotency-Key>".
+    @Id
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(columnDefinition = "text")
+    private String response;
+
+    // The transaction the request created, bound in the same database transaction that persisted it.
+    @Column(name = "transaction_id")
+    private UUID transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED,
+        // The request failed after creating its transaction, which may still finish; replays answer from it.
+        UNRESOLVED
+    }
+}
@@ -0,0 +1,55 @@
+package com.paypulse.transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "saga_log")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SagaLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private UUID transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Step step;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state;
+
+    @Column(length = 500)
+    private String detail;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public enum Step {
+        RESERVE,
+        TRANSFER,
+        COMPLETE,
+        REFUND,
+        RELEASE
+    }
+
+    public enum State {
+        STARTED,
+        SUCCEEDED,
+        // The wallet answered with a rejection, so the step had no effect.
+        FAILED,
+        // No answer (timeout, connection loss): the step may or may not have been applied.
+        UNKNOWN
+    }
+}
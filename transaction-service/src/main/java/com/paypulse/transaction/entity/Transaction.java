@@ -1,13 +1,15 @@
 package com.paypulse.transaction.entity;
 
+import com.paypulse.common.Money;
+import com.paypulse.common.MoneyConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
+@Table(name = "transactions")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,11 +28,27 @@ public class Transaction {
     private UUID toUserId;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private Instant timestamp;
 
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @Column(length = 500)
+    private String failureReason;
+
+    @Column(length = 20)
+    private String sagaMode;
+
+    private UUID holdId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int recoveryAttempts = 0;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
@@ -23,7 +23,7 @@ public class TransactionProducer {
             TransactionCreatedEvent event = new TransactionCreatedEvent(
                     transaction.getFromUserId(),
                     transaction.getToUserId(),
-                    transaction.getAmount(),
+                    transaction.getAmount().toBigDecimal(),
                     "TRANSACTION"
             );
             String json = objectMapper.writeValueAsString(event);
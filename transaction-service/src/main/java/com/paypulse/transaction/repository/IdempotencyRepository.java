@@ -0,0 +1,54 @@
+package com.paypulse.transaction.repository;
+
+import com.paypulse.transaction.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Returns 0 when another request already holds the key.
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (id, user_id, request_hash, status, created_at) "
+            + "VALUES (:id, :userId, :requestHash, 'IN_PROGRESS', :createdAt) ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("userId") UUID userId,
+              @Param("requestHash") String requestHash, @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.response = :response, r.completedAt = :completedAt "
+            + "WHERE r.id = :id")
+    int complete(@Param("id") String id, @Param("response") String response, @Param("completedAt") Instant completedAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.transactionId = :transactionId WHERE r.id = :id")
+    int bind(@Param("id") String id, @Param("transactionId") UUID transactionId);
+
+    // Returns 0 when the request failed before creating a transaction.
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'UNRESOLVED' "
+            + "WHERE r.id = :id AND r.status = 'IN_PROGRESS' AND r.transactionId IS NOT NULL")
+    int markUnresolved(@Param("id") String id);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.status = :status AND r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("status") IdempotencyRecord.Status status, @Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r "
+            + "WHERE r.status = 'IN_PROGRESS' AND r.transactionId IS NULL AND r.createdAt < :cutoff")
+    int deleteStaleUnbound(@Param("cutoff") Instant cutoff);
+
+    // A claim left by a crashed instance after it created its transaction must keep its key.
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'UNRESOLVED' "
+            + "WHERE r.status = 'IN_PROGRESS' AND r.transactionId IS NOT NULL AND r.createdAt < :cutoff")
+    int resolveStaleBound(@Param("cutoff") Instant cutoff);
+}
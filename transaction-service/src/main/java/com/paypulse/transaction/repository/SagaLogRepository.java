@@ -0,0 +1,11 @@
+package com.paypulse.transaction.repository;
+
+import com.paypulse.transaction.entity.SagaLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface SagaLogRepository extends JpaRepository<SagaLogEntry, Long> {
+    List<SagaLogEntry> findByTransactionIdOrderByIdAsc(UUID transactionId);
+}
@@ -2,10 +2,37 @@ package com.paypulse.transaction.repository;
 
 import com.paypulse.transaction.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
     List<Transaction> findAllByFromUserIdOrToUserIdOrderByTimestampDesc(UUID fromUserId, UUID toUserId);
-}
\ No newline at end of file
+
+    // Rows locked here are skipped by other instances until the claiming transaction commits a fresh updated_at.
+    @Query(value = "SELECT * FROM transactions WHERE status IN ('PENDING', 'RESERVED', 'TRANSFERRED') "
+            + "AND updated_at < :staleBefore ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Transaction> lockStale(@Param("staleBefore") Instant staleBefore, @Param("limit") int limit);
+
+    // Written with the transaction itself; one row per party, a single row when both parties are the same user.
+    @Modifying
+    @Query(value = "INSERT INTO transaction_participants (user_id, created_at, transaction_id) "
+            + "VALUES (:fromUserId, :createdAt, :id), (:toUserId, :createdAt, :id) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertParticipants(@Param("id") UUID id, @Param("fromUserId") UUID fromUserId,
+                           @Param("toUserId") UUID toUserId, @Param("createdAt") Instant createdAt);
+
+    // Keyset pages over the (user_id, created_at, transaction_id) primary key: one index range scan per page.
+    @Query(value = "SELECT t.* FROM transaction_participants p JOIN transactions t ON t.id = p.transaction_id "
+            + "WHERE p.user_id = :userId ORDER BY p.created_at DESC, p.transaction_id DESC LIMIT :limit", nativeQuery = true)
+    List<Transaction> findLatestByParticipant(@Param("userId") UUID userId, @Param("limit") int limit);
+
+    @Query(value = "SELECT t.* FROM transaction_participants p JOIN transactions t ON t.id = p.transaction_id "
+            + "WHERE p.user_id = :userId AND (p.created_at, p.transaction_id) < (:createdAt, :id) "
+            + "ORDER BY p.created_at DESC, p.transaction_id DESC LIMIT :limit", nativeQuery = true)
+    List<Transaction> findByParticipantBefore(@Param("userId") UUID userId, @Param("createdAt") Instant createdAt,
+                                              @Param("id") UUID id, @Param("limit") int limit);
+}
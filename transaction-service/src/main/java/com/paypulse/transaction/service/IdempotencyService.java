@@ -0,0 +1,287 @@
+package com.paypulse.transaction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.transaction.entity.IdempotencyRecord;
+import com.paypulse.transaction.repository.IdempotencyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Runs a request at most once per (user, Idempotency-Key). Completed responses are served from Redis, then from
+// idempotency_keys; duplicates arriving while the first request is still running wait for its response. The key is
+// bound to the transaction the request creates, so once money may have moved it is never freed for a second run:
+// a replay of a request that failed after that point is answered from the transaction instead.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "transaction:idempotency:";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRepository repository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter redisReplays;
+    private final Counter dbReplays;
+    private final Counter coalesced;
+    private final Counter transactionReplays;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    @Value("${idempotency.poll-interval-ms:100}")
+    private long pollIntervalMs;
+
+    @Value("${idempotency.stale-after-ms:600000}")
+    private long staleAfterMs;
+
+    // Requests currently executing on this instance, by scoped key.
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRepository repository,
+                              RedisTemplate<String, String> redisTemplate,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.redisReplays = replays(meterRegistry, "redis");
+        this.dbReplays = replays(meterRegistry, "db");
+        this.coalesced = replays(meterRegistry, "in_flight");
+        this.transactionReplays = replays(meterRegistry, "transaction");
+    }
+
+    private static Counter replays(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("transaction_idempotent_replays_total")
+                .description("Duplicate requests answered without running them again")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    // The action gets the claim id to pass to bind(), or null when the request carries no key. The replay function
+    // answers a repeated request from the transaction its failed first attempt created.
+    public <T> T execute(UUID userId, String idempotencyKey, String operation, Object request,
+                         Class<T> responseType, Function<String, T> action, Function<UUID, T> replay) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.apply(null);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = userId + ":" + idempotencyKey;
+        String requestHash = hash(operation, request);
+
+        String cached = readRedis(id, requestHash);
+        if (cached != null) {
+            redisReplays.increment();
+            return read(cached, responseType);
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        InFlight existing = inFlight.putIfAbsent(id, new InFlight(requestHash, result));
+        if (existing != null) {
+            checkSameRequest(existing.requestHash(), requestHash);
+            coalesced.increment();
+            log.debug("Coalescing duplicate request {} onto the one in flight", id);
+            return read(join(existing.result()), responseType);
+        }
+        try {
+            String response = runOnce(id, userId, requestHash, action, replay);
+            result.complete(response);
+            return read(response, responseType);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    // Binds the claim to the transaction the request just created. Must run in the transaction that persists it.
+    public void bind(String claimId, UUID transactionId) {
+        if (claimId != null) {
+            repository.bind(claimId, transactionId);
+        }
+    }
+
+    // Finished records older than the TTL are dropped. A claim left behind by a crashed instance frees its key only
+    // if it never created a transaction; otherwise it becomes unresolved.
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        Instant now = Instant.now();
+        Instant expired = now.minus(Duration.ofHours(ttlHours));
+        Instant stale = now.minusMillis(staleAfterMs);
+        Integer deleted = transactionTemplate.execute(s -> {
+            repository.resolveStaleBound(stale);
+            return repository.deleteOlderThan(IdempotencyRecord.Status.COMPLETED, expired)
+                    + repository.deleteOlderThan(IdempotencyRecord.Status.UNRESOLVED, expired)
+                    + repository.deleteStaleUnbound(stale);
+        });
+        if (deleted != null && deleted > 0) {
+            log.info("Removed {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> String runOnce(String id, UUID userId, String requestHash,
+                               Function<String, T> action, Function<UUID, T> replay) {
+        Integer claimed = transactionTemplate.execute(s -> repository.claim(id, userId, requestHash, Instant.now()));
+        if (claimed == null || claimed == 0) {
+            return awaitStored(id, requestHash, replay);
+        }
+
+        String response;
+        try {
+            response = write(action.apply(id));
+        } catch (RuntimeException e) {
+            // Only a request that moved no money frees its key for a retry: one that failed before creating its
+            // transaction, or one whose transaction was definitely rejected.
+            transactionTemplate.executeWithoutResult(s -> {
+                if (isRejected(e) || repository.markUnresolved(id) == 0) {
+                    repository.release(id);
+                }
+            });
+            throw e;
+        }
+        transactionTemplate.execute(s -> repository.complete(id, response, Instant.now()));
+        writeRedis(id, requestHash, response);
+        return response;
+    }
+
+    // The key is held by a request on another instance (or one that already finished).
+    private <T> String awaitStored(String id, String requestHash, Function<UUID, T> replay) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (true) {
+            IdempotencyRecord record = repository.findById(id).orElse(null);
+            if (record == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "The original request with this Idempotency-Key failed, retry it");
+            }
+            checkSameRequest(record.getRequestHash(), requestHash);
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                dbReplays.increment();
+                writeRedis(id, requestHash, record.getResponse());
+                return record.getResponse();
+            }
+            if (record.getStatus() == IdempotencyRecord.Status.UNRESOLVED) {
+                transactionReplays.increment();
+                return write(replay.apply(record.getTransactionId()));
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for idempotent request " + id, e);
+            }
+        }
+    }
+
+    private static String join(CompletableFuture<String> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isRejected(RuntimeException e) {
+        return e instanceof SagaRejectedException
+                || e instanceof ResponseStatusException status && status.getStatusCode().is4xxClientError();
+    }
+
+    private static void checkSameRequest(String stored, String requestHash) {
+        if (!stored.equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request");
+        }
+    }
+
+    // Stored as "<requestHash>:<response json>" so a reused key with another body is still detected.
+    private String readRedis(String id, String requestHash) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+            if (value == null) {
+                return null;
+            }
+            int idx = value.indexOf(':');
+            checkSameRequest(value.substring(0, idx), requestHash);
+            return value.substring(idx + 1);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to read idempotency key {} from Redis: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String id, String requestHash, String response) {
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + id, requestHash + ":" + response, Duration.ofHours(ttlHours));
+        } catch (Exception e) {
+            log.warn("Failed to write idempotency key {} to Redis: {}", id, e.getMessage());
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to hash idempotent request", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotent response", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored idempotent response", e);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<String> result) {
+    }
+}
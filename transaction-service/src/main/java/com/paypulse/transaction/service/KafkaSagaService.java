@@ -0,0 +1,248 @@
+package com.paypulse.transaction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.AuditService;
+import com.paypulse.common.TransactionCreatedEvent;
+import com.paypulse.common.WalletCommand;
+import com.paypulse.common.WalletCommandReply;
+import com.paypulse.transaction.entity.SagaLogEntry;
+import com.paypulse.transaction.entity.Transaction;
+import com.paypulse.transaction.repository.SagaLogRepository;
+import com.paypulse.transaction.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Saga transport over Kafka: each step is a command written to the outbox in the same transaction as its saga_log
+// entry, keyed by the wallet it touches. wallet-service applies commands once per command id and replies through its
+// own outbox; every reply advances the saga and emits the next command atomically.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KafkaSagaService {
+
+    public static final String COMMANDS_TOPIC = "wallet.commands";
+    public static final String REPLIES_TOPIC = "wallet.command-replies";
+
+    private final TransactionRepository transactionRepository;
+    private final SagaLogRepository sagaLogRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final SagaMetricsService metricsService;
+    private final AuditService auditService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${saga.kafka.await-timeout-ms:30000}")
+    private long awaitTimeoutMs;
+
+    // Callers waiting for the outcome of sagas started on this instance.
+    private final Map<UUID, Sinks.One<Transaction>> waiters = new ConcurrentHashMap<>();
+
+    public static boolean isKafkaMode(String mode) {
+        return "kafka".equalsIgnoreCase(mode);
+    }
+
+    public void start(UUID transactionId) {
+        transactionTemplate.executeWithoutResult(s -> send(load(transactionId), WalletCommand.RESERVE));
+        log.info("Saga {} started over Kafka", transactionId);
+    }
+
+    // Re-sends the command of the step the saga is waiting on; wallet-service answers a duplicate with its stored reply.
+    public void resend(UUID transactionId, boolean compensating) {
+        transactionTemplate.executeWithoutResult(s -> {
+            Transaction tx = load(transactionId);
+            switch (tx.getStatus()) {
+                case PENDING -> send(tx, WalletCommand.RESERVE);
+                case RESERVED -> send(tx, compensating || tx.getFailureReason() != null
+                        ? WalletCommand.COMPENSATE
+                        : WalletCommand.CREDIT);
+                default -> log.info("Saga {} is {}, nothing to resend", transactionId, tx.getStatus());
+            }
+        });
+    }
+
+    // Completes when the saga reaches COMPLETED and fails with SagaRejectedException on FAILED or COMPENSATED.
+    // Replies may be consumed by another instance, so waiters are also settled by a periodic status poll.
+    public Mono<Void> awaitOutcome(UUID transactionId) {
+        return Mono.defer(() -> waiters.computeIfAbsent(transactionId, id -> Sinks.one()).asMono())
+                .timeout(Duration.ofMillis(awaitTimeoutMs))
+                .doFinally(signal -> waiters.remove(transactionId))
+                .flatMap(tx -> tx.getStatus() == Transaction.TransactionStatus.COMPLETED
+                        ? Mono.<Void>empty()
+                        // Within the wait timeout FAILED means a rejected reservation; reconciliation only
+                        // happens once recovery has given up, long after.
+                        : Mono.error(new SagaRejectedException("Transaction " + tx.getStatus().name().toLowerCase()
+                                + ": " + tx.getFailureReason())));
+    }
+
+    @Scheduled(fixedDelayString = "${saga.kafka.status-poll-ms:500}")
+    public void settleWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(waiters.keySet());
+        for (int from = 0; from < ids.size(); from += 1000) {
+            transactionRepository.findAllById(ids.subList(from, Math.min(from + 1000, ids.size()))).forEach(tx -> {
+                if (isFinished(tx.getStatus())) {
+                    notifyWaiter(tx);
+                }
+            });
+        }
+    }
+
+    // Replies of one saga share its key, so they arrive in order; status checks drop duplicates and late replies.
+    @KafkaListener(topics = REPLIES_TOPIC, groupId = "transaction-saga")
+    public void onReply(String payload) throws Exception {
+        WalletCommandReply reply = objectMapper.readValue(payload, WalletCommandReply.class);
+        Transaction finished = transactionTemplate.execute(s -> apply(reply));
+        if (finished != null) {
+            finish(finished);
+        }
+    }
+
+    private Transaction apply(WalletCommandReply reply) {
+        Transaction tx = transactionRepository.findById(reply.transactionId()).orElse(null);
+        if (tx == null) {
+            log.warn("Reply {} for unknown transaction {}", reply.commandId(), reply.transactionId());
+            return null;
+        }
+        boolean compensating = tx.getFailureReason() != null;
+        boolean expected = switch (reply.type()) {
+            case WalletCommand.RESERVE -> tx.getStatus() == Transaction.TransactionStatus.PENDING;
+            case WalletCommand.CREDIT -> tx.getStatus() == Transaction.TransactionStatus.RESERVED && !compensating;
+            case WalletCommand.COMPENSATE -> tx.getStatus() == Transaction.TransactionStatus.RESERVED && compensating;
+            default -> false;
+        };
+        if (!expected) {
+            log.debug("Ignoring {} reply for saga {} in status {}", reply.type(), tx.getId(), tx.getStatus());
+            return null;
+        }
+
+        appendLog(tx.getId(), stepOf(reply.type()),
+                reply.success() ? SagaLogEntry.State.SUCCEEDED : SagaLogEntry.State.FAILED, reply.reason());
+        switch (reply.type()) {
+            case WalletCommand.RESERVE -> {
+                if (!reply.success()) {
+                    return update(tx, Transaction.TransactionStatus.FAILED, reply.reason());
+                }
+                update(tx, Transaction.TransactionStatus.RESERVED, null);
+                send(tx, WalletCommand.CREDIT);
+                return null;
+            }
+            case WalletCommand.CREDIT -> {
+                if (!reply.success()) {
+                    update(tx, Transaction.TransactionStatus.RESERVED,
+                            reply.reason() != null ? reply.reason() : "Transfer to recipient was rejected");
+                    send(tx, WalletCommand.COMPENSATE);
+                    return null;
+                }
+                appendLog(tx.getId(), SagaLogEntry.Step.COMPLETE, SagaLogEntry.State.SUCCEEDED, null);
+                outboxService.saveTransactionEvent(tx.getId().toString(), new TransactionCreatedEvent(
+                        tx.getFromUserId(), tx.getToUserId(), tx.getAmount().toBigDecimal(), "TRANSACTION"));
+                return update(tx, Transaction.TransactionStatus.COMPLETED, null);
+            }
+            default -> {
+                if (!reply.success()) {
+                    log.error("Saga {}: refund was rejected ({}), leaving it to recovery", tx.getId(), reply.reason());
+                    return null;
+                }
+                return update(tx, Transaction.TransactionStatus.COMPENSATED, null);
+            }
+        }
+    }
+
+    private void finish(Transaction tx) {
+        String details = "to=" + tx.getToUserId() + ", amount=" + tx.getAmount().toBigDecimal();
+        switch (tx.getStatus()) {
+            case COMPLETED -> {
+                metricsService.incrementSuccessfulTransactions();
+                auditService.logAction(tx.getFromUserId().toString(), "sagaTransaction", details + ", status=SUCCESS");
+            }
+            case COMPENSATED -> {
+                metricsService.incrementFailedTransactions();
+                metricsService.incrementCompensations();
+                auditService.logAction(tx.getFromUserId().toString(), "sagaCompensation", details + ", status=COMPENSATED");
+            }
+            default -> {
+                metricsService.incrementFailedTransactions();
+                auditService.logAction(tx.getFromUserId().toString(), "sagaTransaction",
+                        details + ", status=FAILED: " + tx.getFailureReason());
+            }
+        }
+        log.info("Saga {} finished over Kafka: {}", tx.getId(), tx.getStatus());
+        notifyWaiter(tx);
+    }
+
+    private void notifyWaiter(Transaction tx) {
+        Sinks.One<Transaction> waiter = waiters.remove(tx.getId());
+        if (waiter != null) {
+            waiter.tryEmitValue(tx);
+        }
+    }
+
+    private void send(Transaction tx, String type) {
+        UUID walletId = WalletCommand.CREDIT.equals(type) ? tx.getToUserId() : tx.getFromUserId();
+        appendLog(tx.getId(), stepOf(type), SagaLogEntry.State.STARTED, null);
+        outboxService.saveEvent(walletId.toString(), "SAGA", COMMANDS_TOPIC, new WalletCommand(
+                commandId(tx.getId(), type), tx.getId(), type, walletId, tx.getAmount().toBigDecimal(),
+                WalletCommand.COMPENSATE.equals(type) ? "Compensation for failed transaction" : "Transaction transfer"));
+    }
+
+    // Stable per saga step, so a re-sent command is recognised as a duplicate by wallet-service.
+    private static UUID commandId(UUID transactionId, String type) {
+        return UUID.nameUUIDFromBytes((transactionId + ":" + type).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SagaLogEntry.Step stepOf(String type) {
+        return switch (type) {
+            case WalletCommand.RESERVE -> SagaLogEntry.Step.RESERVE;
+            case WalletCommand.CREDIT -> SagaLogEntry.Step.TRANSFER;
+            default -> SagaLogEntry.Step.REFUND;
+        };
+    }
+
+    private static boolean isFinished(Transaction.TransactionStatus status) {
+        return status == Transaction.TransactionStatus.COMPLETED
+                || status == Transaction.TransactionStatus.FAILED
+                || status == Transaction.TransactionStatus.COMPENSATED;
+    }
+
+    private Transaction load(UUID transactionId) {
+        return transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + transactionId));
+    }
+
+    private Transaction update(Transaction tx, Transaction.TransactionStatus status, String reason) {
+        tx.setStatus(status);
+        tx.setUpdatedAt(Instant.now());
+        if (reason != null) {
+            tx.setFailureReason(reason.length() > 500 ? reason.substring(0, 500) : reason);
+        }
+        return transactionRepository.save(tx);
+    }
+
+    private void appendLog(UUID transactionId, SagaLogEntry.Step step, SagaLogEntry.State state, String detail) {
+        sagaLogRepository.save(SagaLogEntry.builder()
+                .transactionId(transactionId)
+                .step(step)
+                .state(state)
+                .detail(detail != null && detail.length() > 500 ? detail.substring(0, 500) : detail)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
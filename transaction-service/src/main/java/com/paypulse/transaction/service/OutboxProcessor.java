@@ -33,7 +33,7 @@ public class OutboxProcessor {
     @Value("${outbox.cleanup.days:7}")
     private int cleanupDays;
 
-    @Scheduled(fixedRate = 5000)
+    @Scheduled(fixedRateString = "${outbox.polling-interval:5000}")
     @Transactional
     public void processOutboxEvents() {
         try {
@@ -80,7 +80,7 @@ public class OutboxProcessor {
             event.setStatus(OutboxEvent.EventStatus.PROCESSING);
             outboxRepository.save(event);
 
-            kafkaTemplate.send(event.getEventType(), event.getEventData())
+            kafkaTemplate.send(event.getEventType(), event.getAggregateId(), event.getEventData())
                     .whenComplete((result, throwable) -> {
                         if (throwable != null) {
                             handlePublishError(event, throwable);
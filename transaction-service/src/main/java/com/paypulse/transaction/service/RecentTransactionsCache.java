@@ -0,0 +1,182 @@
+package com.paypulse.transaction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+// Read model of each user's newest history entries: a Redis sorted set scored by created_at, holding at most
+// `size` entries. Members are "<id>:<json>", so ties on created_at order by id exactly like the database and
+// entries committed out of order still land in place. A set answers reads only once it carries the warm marker,
+// i.e. after it was filled from the database; entries pushed before that are merged into it.
+@Slf4j
+@Service
+public class RecentTransactionsCache {
+
+    private static final String KEY_PREFIX = "transaction:recent:";
+    private static final String WARM_MARKER = "~";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${transaction.recent-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transaction.recent-cache.size:50}")
+    private int size;
+
+    @Value("${transaction.recent-cache.ttl-ms:3600000}")
+    private long ttlMs;
+
+    public RecentTransactionsCache(RedisTemplate<String, String> redisTemplate,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transaction_recent_cache_requests_total")
+                .description("First history page lookups in the recent transactions cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // Newest `limit` entries of the user. The loader reads the database; it is used for limits beyond the cached
+    // size and to warm the set on a miss.
+    public List<TransactionResponse> latest(UUID userId, int limit, IntFunction<List<TransactionResponse>> loader) {
+        if (!enabled || limit > size) {
+            return loader.apply(limit);
+        }
+        List<TransactionResponse> cached = read(userId, limit);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        List<TransactionResponse> latest = loader.apply(size);
+        warm(userId, latest);
+        return latest.size() > limit ? latest.subList(0, limit) : latest;
+    }
+
+    // Adds the entry to both parties' sets once the transaction that created it commits.
+    public void onCommitted(TransactionResponse entry) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    push(entry);
+                }
+            });
+        } else {
+            push(entry);
+        }
+    }
+
+    private void push(TransactionResponse entry) {
+        Set<UUID> userIds = new HashSet<>(List.of(entry.fromUserId(), entry.toUserId()));
+        String member = member(entry);
+        for (UUID userId : userIds) {
+            String key = KEY_PREFIX + userId;
+            try {
+                redisTemplate.opsForZSet().add(key, member, score(entry.timestamp()));
+                trim(key);
+            } catch (Exception e) {
+                log.warn("Failed to add transaction {} to recent list of user {}: {}", entry.id(), userId, e.getMessage());
+                // A set that missed an entry must not be served; the next read warms it again.
+                evict(key);
+            }
+        }
+    }
+
+    private List<TransactionResponse> read(UUID userId, int limit) {
+        try {
+            // The marker has the highest score, so it comes first in a warm set.
+            Set<String> members = redisTemplate.opsForZSet().reverseRange(KEY_PREFIX + userId, 0, limit);
+            if (members == null || members.isEmpty()) {
+                return null;
+            }
+            Iterator<String> it = members.iterator();
+            if (!WARM_MARKER.equals(it.next())) {
+                return null;
+            }
+            List<TransactionResponse> entries = new ArrayList<>(members.size() - 1);
+            while (it.hasNext()) {
+                String member = it.next();
+                entries.add(objectMapper.readValue(member.substring(member.indexOf(':') + 1), TransactionResponse.class));
+            }
+            return entries;
+        } catch (Exception e) {
+            log.warn("Failed to read recent transactions of user {} from Redis: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void warm(UUID userId, List<TransactionResponse> latest) {
+        String key = KEY_PREFIX + userId;
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            tuples.add(new DefaultTypedTuple<>(WARM_MARKER, Double.POSITIVE_INFINITY));
+            for (TransactionResponse entry : latest) {
+                tuples.add(new DefaultTypedTuple<>(member(entry), score(entry.timestamp())));
+            }
+            redisTemplate.opsForZSet().add(key, tuples);
+            trim(key);
+        } catch (Exception e) {
+            log.warn("Failed to warm recent transactions of user {} in Redis: {}", userId, e.getMessage());
+        }
+    }
+
+    // Keeps the marker plus the newest `size` entries.
+    private void trim(String key) {
+        redisTemplate.opsForZSet().removeRange(key, 0, -(size + 2));
+        redisTemplate.expire(key, Duration.ofMillis(ttlMs));
+    }
+
+    private void evict(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Failed to evict recent transactions {} from Redis: {}", key, e.getMessage());
+        }
+    }
+
+    private String member(TransactionResponse entry) {
+        try {
+            return entry.id() + ":" + objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize transaction " + entry.id(), e);
+        }
+    }
+
+    // Microseconds since the epoch, the precision of created_at; exact in a double until the year 2255.
+    private static double score(Instant timestamp) {
+        return timestamp.getEpochSecond() * 1_000_000d + timestamp.getNano() / 1_000;
+    }
+}
@@ -1,11 +1,13 @@
 package com.paypulse.transaction.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class SagaMetricsService {
@@ -14,7 +16,10 @@ public class SagaMetricsService {
     private final Counter sagaTransactionsSuccess;
     private final Counter sagaTransactionsFailed;
     private final Counter sagaCompensationsTotal;
+    private final Counter sagaRecoveriesTotal;
+    private final Counter sagaReconciliationsTotal;
     private final Timer sagaDurationTimer;
+    private final AtomicInteger sagaInFlight = new AtomicInteger();
 
     public SagaMetricsService(MeterRegistry meterRegistry) {
         this.sagaTransactionsTotal = Counter.builder("saga_transactions_total")
@@ -29,9 +34,18 @@ public class SagaMetricsService {
         this.sagaCompensationsTotal = Counter.builder("saga_compensations_total")
                 .description("Total number of Saga compensations")
                 .register(meterRegistry);
+        this.sagaRecoveriesTotal = Counter.builder("saga_recoveries_total")
+                .description("Total number of stale Sagas picked up by recovery")
+                .register(meterRegistry);
+        this.sagaReconciliationsTotal = Counter.builder("saga_reconciliations_total")
+                .description("Total number of Sagas left for manual reconciliation")
+                .register(meterRegistry);
         this.sagaDurationTimer = Timer.builder("saga_duration_seconds")
                 .description("Saga transaction duration")
                 .register(meterRegistry);
+        Gauge.builder("saga_async_in_flight", sagaInFlight, AtomicInteger::get)
+                .description("Asynchronous Saga transactions currently executing")
+                .register(meterRegistry);
     }
 
     public void incrementTotalTransactions() {
@@ -50,6 +64,22 @@ public class SagaMetricsService {
         sagaCompensationsTotal.increment();
     }
 
+    public void incrementRecoveries() {
+        sagaRecoveriesTotal.increment();
+    }
+
+    public void incrementReconciliations() {
+        sagaReconciliationsTotal.increment();
+    }
+
+    public void incrementInFlight() {
+        sagaInFlight.incrementAndGet();
+    }
+
+    public void decrementInFlight() {
+        sagaInFlight.decrementAndGet();
+    }
+
     public Timer.Sample startTimer() {
         return Timer.start();
     }
@@ -0,0 +1,74 @@
+package com.paypulse.transaction.service;
+
+import com.paypulse.transaction.entity.Transaction;
+import com.paypulse.transaction.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+
+// Every live saga step refreshes updated_at and is bounded by saga.step-timeout-ms, so a saga untouched for
+// longer than stale-after-ms has lost its driver (crash, restart) and is resumed or compensated here.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SagaRecoveryService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionSagaService sagaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${saga.recovery.stale-after-ms:30000}")
+    private long staleAfterMs;
+
+    @Value("${saga.recovery.batch-size:100}")
+    private int batchSize;
+
+    @Value("${saga.recovery.parallelism:16}")
+    private int parallelism;
+
+    @Value("${saga.recovery.max-attempts:5}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${saga.recovery.interval-ms:10000}")
+    public void recoverStaleSagas() {
+        List<Transaction> claimed;
+        do {
+            claimed = claimBatch();
+            if (claimed.isEmpty()) {
+                return;
+            }
+            log.info("Recovering {} stale sagas", claimed.size());
+            Flux.fromIterable(claimed)
+                    .filter(tx -> !sagaService.isRunning(tx.getId()))
+                    .flatMap(tx -> Mono.defer(() -> sagaService.recover(tx, tx.getRecoveryAttempts() > maxAttempts))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(e -> {
+                                log.warn("Recovery of saga {} did not finish: {}", tx.getId(), e.getMessage());
+                                return Mono.empty();
+                            }), parallelism)
+                    .blockLast();
+        } while (claimed.size() == batchSize);
+    }
+
+    // Claiming pushes updated_at forward, which is the lease: other instances skip the row until it goes stale again.
+    private List<Transaction> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<Transaction> stale = transactionRepository.lockStale(now.minusMillis(staleAfterMs), batchSize);
+            stale.forEach(tx -> {
+                tx.setUpdatedAt(now);
+                tx.setRecoveryAttempts(tx.getRecoveryAttempts() + 1);
+            });
+            return stale;
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.paypulse.transaction.service;
+
+// The saga ended without moving money: its first step was rejected, or everything it did was compensated.
+public class SagaRejectedException extends RuntimeException {
+
+    public SagaRejectedException(String message) {
+        super(message);
+    }
+
+    public SagaRejectedException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,146 @@
+package com.paypulse.transaction.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Actor-style mailboxes keyed by sender: sagas of one sender run one at a time in arrival order, so they no longer
+// fight over the sender's wallet row, while different senders run in parallel. Mailboxes are bounded and dropped
+// once drained.
+@Slf4j
+@Service
+public class SenderDispatcher {
+
+    private final Map<UUID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    @Value("${saga.sender-queue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${saga.sender-queue.capacity:100}")
+    private int capacity;
+
+    public SenderDispatcher(MeterRegistry meterRegistry) {
+        this.waitTimer = Timer.builder("saga_sender_queue_wait_seconds")
+                .description("Time a saga waited in its sender's mailbox before starting")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("saga_sender_queue_rejected_total")
+                .description("Sagas refused because their sender's mailbox was full")
+                .register(meterRegistry);
+        Gauge.builder("saga_sender_queue_depth", queued, AtomicInteger::get)
+                .description("Sagas waiting in sender mailboxes")
+                .register(meterRegistry);
+        Gauge.builder("saga_sender_mailboxes", mailboxes, Map::size)
+                .description("Senders with a saga running or waiting")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The task is subscribed once every earlier task of the same sender has terminated.
+    public <T> Mono<T> submit(UUID senderId, Mono<T> task) {
+        return Mono.defer(() -> {
+            Job<T> job = new Job<>(task, Sinks.one(), System.nanoTime());
+            while (true) {
+                Mailbox mailbox = mailboxes.computeIfAbsent(senderId, Mailbox::new);
+                Offer offer = mailbox.offer(job);
+                if (offer == Offer.ACCEPTED) {
+                    return job.result.asMono();
+                }
+                if (offer == Offer.FULL) {
+                    rejected.increment();
+                    log.warn("Mailbox of sender {} is full ({} waiting)", senderId, capacity);
+                    return Mono.error(new QueueFullException(senderId));
+                }
+                // CLOSED: the mailbox drained and left the map in between; take the fresh one.
+            }
+        });
+    }
+
+    private enum Offer {
+        ACCEPTED,
+        FULL,
+        CLOSED
+    }
+
+    private final class Mailbox {
+        private final UUID senderId;
+        private final ArrayDeque<Job<?>> waiting = new ArrayDeque<>();
+        private boolean running;
+        private boolean closed;
+
+        private Mailbox(UUID senderId) {
+            this.senderId = senderId;
+        }
+
+        private Offer offer(Job<?> job) {
+            synchronized (this) {
+                if (closed) {
+                    return Offer.CLOSED;
+                }
+                if (running) {
+                    if (waiting.size() >= capacity) {
+                        return Offer.FULL;
+                    }
+                    waiting.add(job);
+                    queued.incrementAndGet();
+                    return Offer.ACCEPTED;
+                }
+                running = true;
+            }
+            start(job);
+            return Offer.ACCEPTED;
+        }
+
+        private void next() {
+            Job<?> job;
+            synchronized (this) {
+                job = waiting.poll();
+                if (job == null) {
+                    running = false;
+                    closed = true;
+                    mailboxes.remove(senderId, this);
+                    return;
+                }
+                queued.decrementAndGet();
+            }
+            start(job);
+        }
+
+        private <T> void start(Job<T> job) {
+            waitTimer.record(System.nanoTime() - job.enqueuedAt, TimeUnit.NANOSECONDS);
+            job.task
+                    .doFinally(signal -> next())
+                    .subscribe(job.result::tryEmitValue, job.result::tryEmitError, job.result::tryEmitEmpty);
+        }
+    }
+
+    private record Job<T>(Mono<T> task, Sinks.One<T> result, long enqueuedAt) {
+    }
+
+    public static final class QueueFullException extends ResponseStatusException {
+        private QueueFullException(UUID senderId) {
+            super(HttpStatus.TOO_MANY_REQUESTS, "Too many transactions in progress for sender " + senderId);
+        }
+    }
+}
@@ -1,42 +1,106 @@
 package com.paypulse.transaction.service;
 
 import com.paypulse.common.*;
+import com.paypulse.transaction.client.WalletBatcher;
+import com.paypulse.transaction.client.WalletClient;
+import com.paypulse.transaction.config.ServiceTokenProvider;
+import com.paypulse.transaction.entity.SagaLogEntry;
 import com.paypulse.transaction.entity.Transaction;
 import com.paypulse.transaction.kafka.TransactionProducer;
+import com.paypulse.transaction.repository.SagaLogRepository;
 import com.paypulse.transaction.repository.TransactionRepository;
 import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
+// Every saga is a transactions row plus an append-only saga_log. Each wallet call is logged as STARTED before it is
+// sent and as SUCCEEDED together with the status change it causes, so a saga interrupted at any point can be resumed
+// or compensated from the database alone.
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionSagaService {
 
     private final TransactionRepository transactionRepository;
+    private final SagaLogRepository sagaLogRepository;
     private final TransactionProducer producer;
     private final AuditService auditService;
-    private final WebClient.Builder webClientBuilder;
     private final SagaMetricsService metricsService;
     private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final ServiceTokenProvider serviceTokens;
+    private final KafkaSagaService kafkaSagaService;
+    private final WalletClient walletClient;
+    private final WalletBatcher walletBatcher;
+    private final SenderDispatcher senderDispatcher;
+    private final RecentTransactionsCache recentTransactions;
+    private final IdempotencyService idempotencyService;
 
-    private WebClient webClient() {
-        return webClientBuilder.baseUrl("http://wallet-service:8082").build();
+    @Value("${saga.wallet-mode:transfer}")
+    private String walletMode;
+
+    @Value("${saga.step-timeout-ms:10000}")
+    private long stepTimeoutMs;
+
+    @Value("${saga.async.max-in-flight:10000}")
+    private int maxInFlight;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private Semaphore asyncPermits;
+    // JPA calls of sagas run here so they never block the Netty event loop.
+    private Scheduler persistScheduler;
+    // Sagas driven by this instance right now; recovery leaves them alone.
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        asyncPermits = new Semaphore(maxInFlight);
+        persistScheduler = virtualThreads
+                ? Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "saga-persist")
+                : Schedulers.boundedElastic();
     }
 
-    @Transactional(rollbackFor = Exception.class)
-    @Retryable(value = {Exception.class}, maxAttempts = 3, backoff = @Backoff(delay = 1000))
-    public TransactionResponse executeTransaction(TransactionRequest request, String accessToken) {
+    @PreDestroy
+    public void shutdown() {
+        if (virtualThreads) {
+            persistScheduler.dispose();
+        }
+    }
+
+    private static boolean isTransferMode(String mode) {
+        return "transfer".equalsIgnoreCase(mode);
+    }
+
+    private static boolean isHoldMode(String mode) {
+        return "hold".equalsIgnoreCase(mode);
+    }
+
+    // idempotencyClaim binds the caller's Idempotency-Key to the new transaction; null when there is none.
+    public TransactionResponse executeTransaction(TransactionRequest request, String accessToken, String idempotencyClaim) {
         log.info("Starting Saga transaction: {} -> {} amount {}", request.fromUserId(), request.toUserId(), request.amount());
         if (accessToken == null || accessToken.trim().isEmpty()) {
             log.error("Access token is null or empty");
@@ -47,192 +111,412 @@ public class TransactionSagaService {
         }
         metricsService.incrementTotalTransactions();
         Timer.Sample timer = metricsService.startTimer();
+        Transaction transaction = begin(request, idempotencyClaim);
+        try {
+            runInOrder(new SagaContext(transaction, accessToken)).block();
+        } finally {
+            metricsService.stopTimer(timer);
+        }
+        log.info("Saga transaction completed successfully: {} -> {} amount {}",
+                request.fromUserId(), request.toUserId(), request.amount());
+        return new TransactionResponse(
+                transaction.getId(), transaction.getFromUserId(), transaction.getToUserId(),
+                transaction.getAmount().toBigDecimal(), transaction.getTimestamp());
+    }
 
-        Transaction transaction = null;
-        boolean fundsReserved = false;
-        boolean fundsTransferred = false;
-
+    // Persists the transaction as PENDING and runs the saga in the background; callers poll its status.
+    public Transaction startAsync(TransactionRequest request, String accessToken, String idempotencyClaim) {
+        String token = accessToken.startsWith("Bearer ") ? accessToken.substring(7) : accessToken;
+        if (!asyncPermits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many transactions in flight");
+        }
+        Transaction pending;
         try {
-            log.info("Saga Step 1: Reserving funds for user {}", request.fromUserId());
-            boolean reserveSuccess = reserveFunds(request.fromUserId(), request.amount(), accessToken);
-            if (!reserveSuccess) throw new RuntimeException("Insufficient funds for user: " + request.fromUserId());
-            fundsReserved = true;
-            log.info("Saga Step 1 completed: Funds reserved for user {}", request.fromUserId());
-
-            log.info("Saga Step 2: Transferring funds to user {}", request.toUserId());
-            boolean transferSuccess = transferFunds(request.toUserId(), request.amount(), accessToken);
-            if (!transferSuccess) throw new RuntimeException("Failed to transfer funds to user: " + request.toUserId());
-            fundsTransferred = true;
-            log.info("Saga Step 2 completed: Funds transferred to user {}", request.toUserId());
-
-            log.info("Saga Step 3: Confirming transaction");
-            transaction = confirmTransaction(request);
-            log.info("Saga Step 3 completed: Transaction confirmed with ID {}", transaction.getId());
-
-            log.info("Saga Step 4: Saving transaction event to outbox");
-            TransactionCreatedEvent event = new TransactionCreatedEvent(
-                    transaction.getFromUserId(),
-                    transaction.getToUserId(),
-                    transaction.getAmount(),
-                    "TRANSACTION"
-            );
-            outboxService.saveTransactionEvent(transaction.getId().toString(), event);
-            log.info("Saga Step 4 completed: Transaction event saved to outbox");
-
-            auditService.logAction(request.fromUserId().toString(), "sagaTransaction",
-                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", status=SUCCESS");
+            pending = begin(request, idempotencyClaim);
+        } catch (RuntimeException e) {
+            asyncPermits.release();
+            throw e;
+        }
 
-            metricsService.incrementSuccessfulTransactions();
-            metricsService.stopTimer(timer);
+        UUID transactionId = pending.getId();
+        metricsService.incrementTotalTransactions();
+        metricsService.incrementInFlight();
+        Timer.Sample timer = metricsService.startTimer();
+        runInOrder(new SagaContext(pending, token))
+                .doFinally(signal -> {
+                    asyncPermits.release();
+                    metricsService.decrementInFlight();
+                    metricsService.stopTimer(timer);
+                })
+                .subscribe(null, e -> log.debug("Async Saga {} ended with {}", transactionId, e.getMessage()));
+        return pending;
+    }
 
-            log.info("Saga transaction completed successfully: {} -> {} amount {}",
-                    request.fromUserId(), request.toUserId(), request.amount());
+    public boolean isRunning(UUID transactionId) {
+        return running.contains(transactionId);
+    }
 
-            return new TransactionResponse(
-                    transaction.getId(), transaction.getFromUserId(), transaction.getToUserId(),
-                    transaction.getAmount(), transaction.getTimestamp());
+    // Picks a stale saga up where its log says it stopped. Wallet calls are made with service tokens because
+    // the user's own token is gone.
+    public Mono<Void> recover(Transaction transaction, boolean attemptsExhausted) {
+        SagaContext ctx = new SagaContext(transaction, null);
+        Map<SagaLogEntry.Step, SagaLogEntry.State> history = new EnumMap<>(SagaLogEntry.Step.class);
+        sagaLogRepository.findByTransactionIdOrderByIdAsc(ctx.transactionId)
+                .forEach(entry -> history.put(entry.getStep(), entry.getState()));
+        log.info("Recovering Saga {} in status {} (attempt {}): {}",
+                ctx.transactionId, ctx.status, transaction.getRecoveryAttempts(), history);
+        metricsService.incrementRecoveries();
 
-        } catch (Exception e) {
-            log.error("Saga transaction failed: " + e.getMessage(), e);
-            metricsService.incrementFailedTransactions();
-            metricsService.stopTimer(timer);
+        if (ctx.status == Transaction.TransactionStatus.TRANSFERRED) {
+            return track(ctx, complete(ctx));
+        }
+        if (attemptsExhausted) {
+            return reconcile(ctx, "Recovery attempts exhausted in status " + ctx.status);
+        }
+        if (KafkaSagaService.isKafkaMode(ctx.mode)) {
+            boolean compensating = history.containsKey(SagaLogEntry.Step.REFUND);
+            return persist(() -> kafkaSagaService.resend(ctx.transactionId, compensating));
+        }
+        if (history.containsKey(SagaLogEntry.Step.REFUND) || history.containsKey(SagaLogEntry.Step.RELEASE)) {
+            return track(ctx, compensate(ctx, history, "Compensation resumed by recovery"));
+        }
 
-            compensateTransaction(request, fundsReserved, fundsTransferred, accessToken);
+        SagaLogEntry.Step pending = ctx.status == Transaction.TransactionStatus.PENDING
+                ? SagaLogEntry.Step.RESERVE
+                : SagaLogEntry.Step.TRANSFER;
+        SagaLogEntry.State last = history.get(pending);
+        if (last == SagaLogEntry.State.FAILED) {
+            return pending == SagaLogEntry.Step.RESERVE
+                    ? persist(() -> advance(ctx, null, Transaction.TransactionStatus.FAILED, "Funds reservation was rejected"))
+                    : track(ctx, compensate(ctx, history, "Transfer to recipient was rejected"));
+        }
+        if (last != null && !isIdempotent(ctx, pending)) {
+            return reconcile(ctx, "Outcome of " + pending + " is unknown");
+        }
+        return run(ctx);
+    }
 
-            auditService.logAction(request.fromUserId().toString(), "sagaTransaction",
-                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", status=FAILED: " + e.getMessage());
+    private Transaction begin(TransactionRequest request, String idempotencyClaim) {
+        // created_at keeps microseconds; truncating here lets the cached history entry match the stored row.
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return transactionTemplate.execute(s -> {
+            Transaction saved = transactionRepository.save(Transaction.builder()
+                    .fromUserId(request.fromUserId())
+                    .toUserId(request.toUserId())
+                    .amount(Money.of(request.amount()))
+                    .timestamp(now)
+                    .updatedAt(now)
+                    .status(Transaction.TransactionStatus.PENDING)
+                    .sagaMode(walletMode.toLowerCase())
+                    .build());
+            transactionRepository.flush();
+            transactionRepository.insertParticipants(saved.getId(), saved.getFromUserId(), saved.getToUserId(), now);
+            idempotencyService.bind(idempotencyClaim, saved.getId());
+            recentTransactions.onCommitted(new TransactionResponse(saved.getId(), saved.getFromUserId(),
+                    saved.getToUserId(), saved.getAmount().toBigDecimal(), now));
+            return saved;
+        });
+    }
 
-            throw e;
+    // New sagas queue behind earlier ones of the same sender. One refused by a full mailbox has not touched a wallet
+    // yet, so it fails outright instead of being left for recovery.
+    private Mono<Void> runInOrder(SagaContext ctx) {
+        if (!senderDispatcher.isEnabled() || KafkaSagaService.isKafkaMode(ctx.mode)) {
+            return run(ctx);
         }
+        return track(ctx, senderDispatcher.submit(ctx.fromUserId, run(ctx))
+                .onErrorResume(SenderDispatcher.QueueFullException.class, e -> {
+                    metricsService.incrementFailedTransactions();
+                    return persist(() -> advance(ctx, null, Transaction.TransactionStatus.FAILED, e.getReason()))
+                            .then(Mono.error(e));
+                }));
     }
 
-    private boolean reserveFunds(UUID userId, BigDecimal amount, String accessToken) {
-        try {
-            WithdrawRequest withdrawRequest = new WithdrawRequest(amount, "Reserve for transaction");
-            Boolean result = webClient().post()
-                    .uri("/wallet/withdraw")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(withdrawRequest)
-                    .exchangeToMono(resp -> {
-                        if (resp.statusCode().value() == 200) return Mono.just(true);
-                        if (resp.statusCode().value() == 400) {
-                            log.warn("Insufficient funds for user {}", userId);
-                            return Mono.just(false);
-                        }
-                        log.error("Unexpected status {} on reserve funds for user {}", resp.statusCode(), userId);
-                        return resp.createException().flatMap(Mono::error);
-                    }).block();
-            return result != null && result;
-        } catch (Exception e) {
-            log.error("Error reserving funds for user {}", userId, e);
-            return false;
-        }
-    }
-
-    private boolean transferFunds(UUID userId, BigDecimal amount, String accessToken) {
-        try {
-            DepositRequest depositRequest = new DepositRequest(amount, "Transaction transfer");
-            Boolean result = webClient().post()
-                    .uri("/wallet/internal/deposit/" + userId)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(depositRequest)
-                    .exchangeToMono(resp -> {
-                        if (resp.statusCode().value() == 200) return Mono.just(true);
-                        log.error("Failed to transfer funds to user {}, status: {}", userId, resp.statusCode());
-                        return resp.createException().flatMap(Mono::error);
-                    }).block();
-            return result != null && result;
-        } catch (Exception e) {
-            log.error("Error transferring funds to user {}", userId, e);
-            return false;
-        }
-    }
-
-    @Transactional
-    public Transaction confirmTransaction(TransactionRequest request) {
-        Transaction transaction = Transaction.builder()
-                .fromUserId(request.fromUserId())
-                .toUserId(request.toUserId())
-                .amount(request.amount())
-                .timestamp(Instant.now())
-                .status(Transaction.TransactionStatus.COMPLETED)
-                .build();
-        return transactionRepository.save(transaction);
-    }
-
-    private void compensateTransaction(TransactionRequest request, boolean fundsReserved, boolean fundsTransferred, String accessToken) {
-        log.info("Starting compensation for failed transaction: {} -> {} amount {}",
-                request.fromUserId(), request.toUserId(), request.amount());
-        try {
-            if (fundsReserved && !fundsTransferred) {
-                log.info("Compensation: Returning reserved funds to user {}", request.fromUserId());
-                returnReservedFunds(request.fromUserId(), request.amount(), accessToken);
+    // Drives the saga forward from its current status; the returned Mono fails if the saga did not complete.
+    private Mono<Void> run(SagaContext ctx) {
+        if (KafkaSagaService.isKafkaMode(ctx.mode)) {
+            // Replies drive the saga from here on; this only waits for the outcome.
+            return track(ctx, persist(() -> kafkaSagaService.start(ctx.transactionId))
+                    .then(kafkaSagaService.awaitOutcome(ctx.transactionId)));
+        }
+        return track(ctx, forward(ctx).onErrorResume(e -> onFailure(ctx, e)));
+    }
+
+    private Mono<Void> track(SagaContext ctx, Mono<Void> saga) {
+        return Mono.defer(() -> {
+            running.add(ctx.transactionId);
+            return saga;
+        }).doFinally(signal -> running.remove(ctx.transactionId));
+    }
+
+    private Mono<Void> forward(SagaContext ctx) {
+        return Mono.defer(() -> switch (ctx.status) {
+            case PENDING -> reserve(ctx).then(forward(ctx));
+            case RESERVED -> transfer(ctx).then(forward(ctx));
+            case TRANSFERRED -> complete(ctx);
+            default -> Mono.<Void>empty();
+        });
+    }
+
+    private Mono<Void> reserve(SagaContext ctx) {
+        log.info("Saga {} step 1: reserving funds of user {}", ctx.transactionId, ctx.fromUserId);
+        String token = ctx.tokenFor(ctx.fromUserId, serviceTokens);
+        Mono<Boolean> call;
+        if (isTransferMode(ctx.mode)) {
+            call = transferCall(ctx.fromUserId, ctx.toUserId, ctx.amount, "saga:" + ctx.transactionId, token);
+        } else if (isHoldMode(ctx.mode)) {
+            call = walletClient.reserveHold(ctx.fromUserId, ctx.amount, "saga:" + ctx.transactionId, token)
+                    .map(hold -> {
+                        ctx.holdId = hold.holdId();
+                        return hold.holdId() != null;
+                    });
+        } else {
+            call = withdrawCall(ctx.fromUserId, ctx.amount, token);
+        }
+        Transaction.TransactionStatus next = isTransferMode(ctx.mode)
+                ? Transaction.TransactionStatus.TRANSFERRED
+                : Transaction.TransactionStatus.RESERVED;
+        return step(ctx, SagaLogEntry.Step.RESERVE, expect(call, "Insufficient funds for user: " + ctx.fromUserId))
+                .then(persist(() -> advance(ctx, SagaLogEntry.Step.RESERVE, next, null)));
+    }
+
+    private Mono<Void> transfer(SagaContext ctx) {
+        log.info("Saga {} step 2: transferring funds to user {}", ctx.transactionId, ctx.toUserId);
+        String token = ctx.tokenFor(ctx.fromUserId, serviceTokens);
+        Mono<Boolean> call = ctx.holdId != null
+                ? captureHoldCall(ctx.holdId, ctx.toUserId, token)
+                : depositCall(ctx.toUserId, ctx.amount, "Transaction transfer", token);
+        return step(ctx, SagaLogEntry.Step.TRANSFER, expect(call, "Failed to transfer funds to user: " + ctx.toUserId))
+                .then(persist(() -> advance(ctx, SagaLogEntry.Step.TRANSFER, Transaction.TransactionStatus.TRANSFERRED, null)));
+    }
+
+    private Mono<Void> complete(SagaContext ctx) {
+        log.info("Saga {} step 3: confirming transaction", ctx.transactionId);
+        return persist(() -> transactionTemplate.executeWithoutResult(s -> {
+            advance(ctx, SagaLogEntry.Step.COMPLETE, Transaction.TransactionStatus.COMPLETED, null);
+            outboxService.saveTransactionEvent(ctx.transactionId.toString(), new TransactionCreatedEvent(
+                    ctx.fromUserId, ctx.toUserId, ctx.amount.toBigDecimal(), "TRANSACTION"));
+        })).then(Mono.fromRunnable(() -> {
+            auditService.logAction(ctx.fromUserId.toString(), "sagaTransaction",
+                    "to=" + ctx.toUserId + ", amount=" + ctx.amount.toBigDecimal() + ", status=SUCCESS");
+            metricsService.incrementSuccessfulTransactions();
+            log.info("Saga {} completed", ctx.transactionId);
+        }));
+    }
+
+    // A rejected step is undone; a step with an unknown outcome is retried by recovery when that is safe and
+    // otherwise flagged for reconciliation. Local failures leave the saga to recovery as it stands. The error is
+    // re-thrown as a SagaRejectedException only when the saga ended without moving money.
+    private Mono<Void> onFailure(SagaContext ctx, Throwable error) {
+        log.error("Saga {} failed in status {}: {}", ctx.transactionId, ctx.status, error.getMessage(), error);
+        metricsService.incrementFailedTransactions();
+        auditService.logAction(ctx.fromUserId.toString(), "sagaTransaction",
+                "to=" + ctx.toUserId + ", amount=" + ctx.amount.toBigDecimal() + ", status=FAILED: " + error.getMessage());
+
+        Mono<Boolean> rejected;
+        if (!(error instanceof StepFailure failure)) {
+            rejected = Mono.just(false);
+        } else if (failure.definite && failure.step == SagaLogEntry.Step.RESERVE) {
+            rejected = persist(() -> advance(ctx, null, Transaction.TransactionStatus.FAILED, error.getMessage()))
+                    .thenReturn(true);
+        } else if (failure.definite) {
+            rejected = compensate(ctx, Map.of(), error.getMessage())
+                    .then(Mono.fromSupplier(() -> ctx.status == Transaction.TransactionStatus.COMPENSATED));
+        } else if (isIdempotent(ctx, failure.step)) {
+            log.warn("Saga {} left for recovery after {} timed out", ctx.transactionId, failure.step);
+            rejected = Mono.just(false);
+        } else {
+            rejected = reconcile(ctx, "Outcome of " + failure.step + " is unknown").thenReturn(false);
+        }
+        return rejected
+                .onErrorResume(e -> {
+                    log.error("Saga {} could not record its failure, leaving it to recovery", ctx.transactionId, e);
+                    return Mono.just(false);
+                })
+                .flatMap(r -> Mono.<Void>error(r ? new SagaRejectedException(error) : error));
+    }
+
+    private Mono<Void> compensate(SagaContext ctx, Map<SagaLogEntry.Step, SagaLogEntry.State> history, String reason) {
+        SagaLogEntry.Step undo = ctx.holdId != null ? SagaLogEntry.Step.RELEASE : SagaLogEntry.Step.REFUND;
+        SagaLogEntry.State last = history.get(undo);
+        log.info("Saga {}: compensating with {} (previous attempt: {})", ctx.transactionId, undo, last);
+        if ((last == SagaLogEntry.State.STARTED || last == SagaLogEntry.State.UNKNOWN) && !isIdempotent(ctx, undo)) {
+            return reconcile(ctx, "Outcome of " + undo + " is unknown");
+        }
+        Mono<Void> call = Mono.empty();
+        if (last != SagaLogEntry.State.SUCCEEDED) {
+            String token = ctx.tokenFor(ctx.fromUserId, serviceTokens);
+            call = step(ctx, undo, undo == SagaLogEntry.Step.RELEASE
+                    ? releaseHoldCall(ctx.holdId, token)
+                    : returnReservedFundsCall(ctx.fromUserId, ctx.amount, token));
+        }
+        return call
+                .then(persist(() -> advance(ctx, undo, Transaction.TransactionStatus.COMPENSATED, reason)))
+                .doOnSuccess(v -> {
+                    auditService.logAction(ctx.fromUserId.toString(), "sagaCompensation",
+                            "to=" + ctx.toUserId + ", amount=" + ctx.amount.toBigDecimal() + ", status=COMPENSATED");
+                    metricsService.incrementCompensations();
+                })
+                .doOnError(e -> auditService.logAction(ctx.fromUserId.toString(), "sagaCompensationFailed",
+                        "to=" + ctx.toUserId + ", amount=" + ctx.amount.toBigDecimal() + ", error=" + e.getMessage()));
+    }
+
+    private Mono<Void> reconcile(SagaContext ctx, String reason) {
+        log.error("Saga {} needs manual reconciliation: {}", ctx.transactionId, reason);
+        metricsService.incrementReconciliations();
+        auditService.logAction(ctx.fromUserId.toString(), "sagaReconciliationRequired",
+                "transaction=" + ctx.transactionId + ", reason=" + reason);
+        return persist(() -> advance(ctx, null, Transaction.TransactionStatus.FAILED,
+                reason + ", manual reconciliation required"));
+    }
+
+    // Steps that can be repeated without moving money twice: hold operations and atomic transfers are keyed by the
+    // saga, completion is local.
+    private static boolean isIdempotent(SagaContext ctx, SagaLogEntry.Step step) {
+        return switch (step) {
+            case COMPLETE, RELEASE -> true;
+            case RESERVE, TRANSFER -> isHoldMode(ctx.mode) || isTransferMode(ctx.mode);
+            case REFUND -> false;
+        };
+    }
+
+    // Logs the attempt before sending it and classifies a failure as rejected (no effect) or unknown. Only a 4xx is a
+    // rejection: a 5xx, like a ledger commit timeout, may come after the wallet already applied the write.
+    private <T> Mono<T> step(SagaContext ctx, SagaLogEntry.Step step, Mono<T> call) {
+        return persist(() -> appendLog(ctx.transactionId, step, SagaLogEntry.State.STARTED, null))
+                .then(call.timeout(Duration.ofMillis(stepTimeoutMs))
+                        .onErrorResume(e -> {
+                            boolean definite = e instanceof StepRejectedException
+                                    || e instanceof WebClientResponseException response
+                                    && response.getStatusCode().is4xxClientError();
+                            return persist(() -> appendLog(ctx.transactionId, step,
+                                    definite ? SagaLogEntry.State.FAILED : SagaLogEntry.State.UNKNOWN, e.getMessage()))
+                                    .then(Mono.error(new StepFailure(step, definite, e)));
+                        }));
+    }
+
+    private static Mono<Boolean> expect(Mono<Boolean> call, String rejection) {
+        return call.defaultIfEmpty(false)
+                .flatMap(ok -> ok ? Mono.just(true) : Mono.error(new StepRejectedException(rejection)));
+    }
+
+    private Mono<Void> persist(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(persistScheduler).then();
+    }
+
+    private void advance(SagaContext ctx, SagaLogEntry.Step succeeded, Transaction.TransactionStatus status, String reason) {
+        transactionTemplate.executeWithoutResult(s -> {
+            Transaction tx = transactionRepository.findById(ctx.transactionId)
+                    .orElseThrow(() -> new IllegalStateException("Transaction not found: " + ctx.transactionId));
+            tx.setStatus(status);
+            tx.setHoldId(ctx.holdId);
+            tx.setUpdatedAt(Instant.now());
+            if (reason != null) {
+                tx.setFailureReason(reason.length() > 500 ? reason.substring(0, 500) : reason);
             }
-            if (fundsTransferred) {
-                log.info("Compensation: Rolling back transfer to user {}", request.toUserId());
-                rollbackTransfer(request.toUserId(), request.amount(), accessToken);
-                log.info("Compensation: Returning funds to user {}", request.fromUserId());
-                returnReservedFunds(request.fromUserId(), request.amount(), accessToken);
+            if (succeeded != null) {
+                appendLog(ctx.transactionId, succeeded, SagaLogEntry.State.SUCCEEDED, null);
             }
-            auditService.logAction(request.fromUserId().toString(), "sagaCompensation",
-                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", status=COMPENSATED");
-            metricsService.incrementCompensations();
-            log.info("Compensation completed successfully for transaction: {} -> {} amount {}",
-                    request.fromUserId(), request.toUserId(), request.amount());
-        } catch (Exception e) {
-            log.error("Compensation failed for transaction: {} -> {} amount {}",
-                    request.fromUserId(), request.toUserId(), request.amount(), e);
-            auditService.logAction(request.fromUserId().toString(), "sagaCompensationFailed",
-                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", error=" + e.getMessage());
-            throw new RuntimeException("Compensation failed", e);
+        });
+        ctx.status = status;
+    }
+
+    private void appendLog(UUID transactionId, SagaLogEntry.Step step, SagaLogEntry.State state, String detail) {
+        sagaLogRepository.save(SagaLogEntry.builder()
+                .transactionId(transactionId)
+                .step(step)
+                .state(state)
+                .detail(detail != null && detail.length() > 500 ? detail.substring(0, 500) : detail)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    // Plain balance moves can be coalesced with those of other sagas; hold operations always go one by one.
+    private Mono<Boolean> withdrawCall(UUID userId, Money amount, String accessToken) {
+        return walletBatcher.isEnabled()
+                ? walletBatcher.withdraw(userId, amount, "Reserve for transaction")
+                : walletClient.withdraw(userId, amount, accessToken);
+    }
+
+    private Mono<Boolean> depositCall(UUID userId, Money amount, String description, String accessToken) {
+        return walletBatcher.isEnabled()
+                ? walletBatcher.deposit(userId, amount, description)
+                : walletClient.deposit(userId, amount, description, accessToken);
+    }
+
+    private Mono<Boolean> transferCall(UUID fromUserId, UUID toUserId, Money amount, String reference, String accessToken) {
+        return walletBatcher.isEnabled()
+                ? walletBatcher.transfer(fromUserId, toUserId, amount, "Transaction transfer", reference)
+                : walletClient.transfer(fromUserId, toUserId, amount, reference, accessToken);
+    }
+
+    private Mono<Boolean> captureHoldCall(UUID holdId, UUID toUserId, String accessToken) {
+        return walletClient.captureHold(holdId, toUserId, accessToken)
+                .map(result -> "CAPTURED".equals(result.status()))
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<Void> releaseHoldCall(UUID holdId, String accessToken) {
+        return walletClient.releaseHold(holdId, accessToken)
+                .switchIfEmpty(Mono.error(() -> new StepRejectedException("Failed to release hold")))
+                .flatMap(result -> {
+                    if ("CAPTURED".equals(result.status())) {
+                        log.error("Hold {} was captured before release, funds already moved", holdId);
+                        return Mono.error(new StepRejectedException("Hold already captured: " + holdId));
+                    }
+                    log.info("Successfully released hold {}", holdId);
+                    return Mono.<Void>empty();
+                });
+    }
+
+    private Mono<Void> returnReservedFundsCall(UUID userId, Money amount, String accessToken) {
+        return expect(depositCall(userId, amount, "Compensation for failed transaction", accessToken),
+                "Refund to user " + userId + " was rejected")
+                .then(Mono.fromRunnable(() -> log.info("Successfully returned reserved funds to user {}", userId)));
+    }
+
+    private static final class SagaContext {
+        private final UUID transactionId;
+        private final UUID fromUserId;
+        private final UUID toUserId;
+        private final Money amount;
+        private final String mode;
+        // The caller's token for live sagas, null when recovery acts with service tokens.
+        private final String accessToken;
+        private volatile Transaction.TransactionStatus status;
+        private volatile UUID holdId;
+
+        private SagaContext(Transaction transaction, String accessToken) {
+            this.transactionId = transaction.getId();
+            this.fromUserId = transaction.getFromUserId();
+            this.toUserId = transaction.getToUserId();
+            this.amount = transaction.getAmount();
+            this.mode = transaction.getSagaMode() != null ? transaction.getSagaMode() : "transfer";
+            this.accessToken = accessToken;
+            this.status = transaction.getStatus();
+            this.holdId = transaction.getHoldId();
+        }
+
+        private String tokenFor(UUID userId, ServiceTokenProvider serviceTokens) {
+            return accessToken != null && userId.equals(fromUserId) ? accessToken : serviceTokens.tokenFor(userId);
         }
     }
 
-    private void returnReservedFunds(UUID userId, BigDecimal amount, String accessToken) {
-        try {
-            DepositRequest compensationRequest = new DepositRequest(amount, "Compensation for failed transaction");
-            Boolean result = webClient().post()
-                    .uri("/wallet/internal/deposit/" + userId)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(compensationRequest)
-                    .exchangeToMono(resp -> {
-                        if (resp.statusCode().value() == 200) return Mono.just(true);
-                        log.error("Failed to return reserved funds to user {}, status: {}", userId, resp.statusCode());
-                        return resp.createException().flatMap(Mono::error);
-                    }).block();
-            if (result != null && result) {
-                log.info("Successfully returned reserved funds to user {}", userId);
-            } else {
-                log.error("Failed to return reserved funds to user {}", userId);
-                throw new RuntimeException("Failed to return reserved funds");
-            }
-        } catch (Exception e) {
-            log.error("Error returning reserved funds to user {}", userId, e);
-            throw new RuntimeException("Failed to return reserved funds", e);
+    // The wallet answered and refused the step.
+    private static final class StepRejectedException extends RuntimeException {
+        private StepRejectedException(String message) {
+            super(message);
         }
     }
 
-    private void rollbackTransfer(UUID userId, BigDecimal amount, String accessToken) {
-        try {
-            WithdrawRequest rollbackRequest = new WithdrawRequest(amount, "Rollback for failed transaction");
-            Boolean result = webClient().post()
-                    .uri("/wallet/withdraw")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(rollbackRequest)
-                    .exchangeToMono(resp -> {
-                        if (resp.statusCode().value() == 200) return Mono.just(true);
-                        log.error("Failed to rollback transfer for user {}, status: {}", userId, resp.statusCode());
-                        return resp.createException().flatMap(Mono::error);
-                    }).block();
-            if (result != null && result) {
-                log.info("Successfully rolled back transfer for user {}", userId);
-            } else {
-                log.error("Failed to rollback transfer for user {}", userId);
-                throw new RuntimeException("Failed to rollback transfer");
-            }
-        } catch (Exception e) {
-            log.error("Error rolling back transfer for user {}", userId, e);
-            throw new RuntimeException("Failed to rollback transfer", e);
+    private static final class StepFailure extends RuntimeException {
+        private final SagaLogEntry.Step step;
+        private final boolean definite;
+
+        private StepFailure(SagaLogEntry.Step step, boolean definite, Throwable cause) {
+            super(cause.getMessage() != null ? cause.getMessage() : step + " failed", cause);
+            this.step = step;
+            this.definite = definite;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,20 @@
 package com.paypulse.transaction.service;
 
 import com.paypulse.common.AuditService;
+import com.paypulse.common.Cursor;
+import com.paypulse.common.CursorPage;
 import com.paypulse.common.TransactionRequest;
 import com.paypulse.common.TransactionResponse;
+import com.paypulse.common.TransactionStatusResponse;
 import com.paypulse.transaction.entity.Transaction;
 import com.paypulse.transaction.kafka.TransactionProducer;
 import com.paypulse.transaction.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -26,15 +26,77 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TransactionService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+
     private final TransactionRepository repository;
     private final TransactionProducer producer;
     private final AuditService auditService;
     private final TransactionSagaService sagaService;
+    private final IdempotencyService idempotencyService;
+    private final RecentTransactionsCache recentTransactions;
+
+    public TransactionResponse create(TransactionRequest request, String idempotencyKey) {
+        return idempotencyService.execute(getCurrentUserId(), idempotencyKey, "create", request,
+                TransactionResponse.class, claim -> create(request, claim), this::replayCreate);
+    }
 
-    @Transactional(rollbackFor = Exception.class)
-    @Retryable(value = {Exception.class}, maxAttempts = 3, backoff = @Backoff(delay = 1000))
-    public TransactionResponse create(TransactionRequest request) {
+    private TransactionResponse create(TransactionRequest request, String idempotencyClaim) {
         log.info("Starting Saga transaction: {} -> {} amount {}", request.fromUserId(), request.toUserId(), request.amount());
+        String accessToken = getAccessToken();
+        try {
+            return sagaService.executeTransaction(request, accessToken, idempotencyClaim);
+        } catch (Exception e) {
+            log.error("Saga transaction failed: " + e.getMessage(), e);
+            auditService.logAction(request.fromUserId().toString(), "createTransaction",
+                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", status=FAILED: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public TransactionStatusResponse createAsync(TransactionRequest request, String idempotencyKey) {
+        return idempotencyService.execute(getCurrentUserId(), idempotencyKey, "createAsync", request,
+                TransactionStatusResponse.class, claim -> createAsync(request, claim),
+                transactionId -> toStatusResponse(load(transactionId)));
+    }
+
+    private TransactionStatusResponse createAsync(TransactionRequest request, String idempotencyClaim) {
+        Transaction pending = sagaService.startAsync(request, getAccessToken(), idempotencyClaim);
+        auditService.logAction(request.fromUserId().toString(), "createTransactionAsync",
+                "id=" + pending.getId() + ", to=" + request.toUserId() + ", amount=" + request.amount());
+        return toStatusResponse(pending);
+    }
+
+    // A retry of a create whose saga failed midway gets the transaction's outcome instead of a second transfer.
+    private TransactionResponse replayCreate(UUID transactionId) {
+        Transaction tx = load(transactionId);
+        if (tx.getStatus() != Transaction.TransactionStatus.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Transaction " + transactionId + " is "
+                    + tx.getStatus() + (tx.getFailureReason() != null ? ": " + tx.getFailureReason() : ""));
+        }
+        return toResponse(tx);
+    }
+
+    private Transaction load(UUID transactionId) {
+        return repository.findById(transactionId)
+                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + transactionId));
+    }
+
+    // Only the two parties of a transaction can see it; anyone else gets the same answer as for a missing one.
+    public TransactionStatusResponse getStatus(UUID id) {
+        UUID userId = getCurrentUserId();
+        return repository.findById(id)
+                .filter(tx -> tx.getFromUserId().equals(userId) || tx.getToUserId().equals(userId))
+                .map(this::toStatusResponse)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction not found: " + id));
+    }
+
+    private TransactionStatusResponse toStatusResponse(Transaction tx) {
+        return new TransactionStatusResponse(tx.getId(), tx.getFromUserId(), tx.getToUserId(),
+                tx.getAmount().toBigDecimal(), tx.getStatus().name(), tx.getFailureReason(),
+                tx.getTimestamp(), tx.getUpdatedAt());
+    }
+
+    private String getAccessToken() {
         String accessToken = null;
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -50,27 +112,54 @@ public class TransactionService {
         if (accessToken == null || accessToken.trim().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "No valid access token provided");
         }
-        try {
-            return sagaService.executeTransaction(request, accessToken);
-        } catch (Exception e) {
-            log.error("Saga transaction failed: " + e.getMessage(), e);
-            auditService.logAction(request.fromUserId().toString(), "createTransaction",
-                    "to=" + request.toUserId() + ", amount=" + request.amount() + ", status=FAILED: " + e.getMessage());
-            throw e;
-        }
+        return accessToken;
     }
 
-    public List<TransactionResponse> getHistory() {
+    private UUID getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName() == null) {
             throw new IllegalStateException("User not authenticated");
         }
-        UUID userId = UUID.fromString(auth.getName());
+        return UUID.fromString(auth.getName());
+    }
+
+    public CursorPage<TransactionResponse> getHistoryByCursor(String cursor, int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        UUID userId = getCurrentUserId();
+        List<TransactionResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            // The first page is the hot one; it comes from the Redis read model unless it is larger than the cache.
+            rows = recentTransactions.latest(userId, size + 1, limit ->
+                    repository.findLatestByParticipant(userId, limit).stream().map(this::toResponse).toList());
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            rows = repository.findByParticipantBefore(userId, position.timestamp(), position.id(), size + 1)
+                    .stream().map(this::toResponse).toList();
+        }
+        // One extra row is fetched to learn whether a next page exists without counting.
+        boolean hasMore = rows.size() > size;
+        List<TransactionResponse> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionResponse last = page.get(page.size() - 1);
+            nextCursor = new Cursor(last.timestamp(), last.id()).encode();
+        }
+        return new CursorPage<>(page, nextCursor);
+    }
+
+    private TransactionResponse toResponse(Transaction tx) {
+        return new TransactionResponse(
+                tx.getId(), tx.getFromUserId(), tx.getToUserId(),
+                tx.getAmount().toBigDecimal(), tx.getTimestamp());
+    }
+
+    public List<TransactionResponse> getHistory() {
+        UUID userId = getCurrentUserId();
         List<Transaction> list = repository.findAllByFromUserIdOrToUserIdOrderByTimestampDesc(userId, userId);
         return list.stream()
-                .map(tx -> new TransactionResponse(
-                        tx.getId(), tx.getFromUserId(), tx.getToUserId(),
-                        tx.getAmount(), tx.getTimestamp()))
+                .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 }
\ No newline at end of file
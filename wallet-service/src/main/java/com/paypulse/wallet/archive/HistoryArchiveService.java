@@ -0,0 +1,203 @@
+package com.paypulse.wallet.archive;
+
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.repository.HistoryMaintenanceRepository;
+import com.paypulse.wallet.repository.HistoryMaintenanceRepository.Segment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Moves monthly history partitions older than the retention window into immutable segment files and
+// serves them back to cursor reads. A partition is dropped only after its segment is durable on disk.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryArchiveService {
+
+    private static final String JOB = "history-archive";
+    private static final String PARTITION_PREFIX = "transaction_history_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    // Jobs that read history windows and must have moved past a month before its rows disappear.
+    private static final List<String> DEPENDENT_JOBS = List.of("balance-snapshots", "daily-rollups");
+
+    private final HistoryMaintenanceRepository maintenanceRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<LocalDate, HistorySegment> openSegments = new ConcurrentHashMap<>();
+
+    @Value("${wallet.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${wallet.archive.dir:/var/lib/paypulse/wallet-archive}")
+    private String dir;
+
+    @Value("${wallet.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${wallet.archive.block-rows:512}")
+    private int blockRows;
+
+    @Value("${wallet.archive.fetch-size:5000}")
+    private int fetchSize;
+
+    private volatile List<Segment> segments = List.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refreshSegments();
+    }
+
+    // Other instances archive too, so the segment list is reloaded rather than only updated locally.
+    @Scheduled(fixedDelayString = "${wallet.archive.refresh-interval-ms:60000}")
+    public void refreshSegments() {
+        try {
+            segments = maintenanceRepository.findSegments();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load archived history segments: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${wallet.archive.cron:0 0 3 * * ?}")
+    public void archiveColdPartitions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).minusMonths(retentionMonths);
+        for (String partition : maintenanceRepository.findHistoryPartitions()) {
+            LocalDate monthStart = parseMonth(partition);
+            if (monthStart == null || !monthStart.isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                if (!archive(partition, monthStart)) {
+                    break;
+                }
+            } catch (RuntimeException | IOException e) {
+                // Months are archived oldest first so the hot horizon stays contiguous.
+                log.error("Failed to archive history partition {}", partition, e);
+                break;
+            }
+        }
+        refreshSegments();
+    }
+
+    private boolean archive(String partition, LocalDate monthStart) throws IOException {
+        Instant monthEnd = monthStart.plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        for (String job : DEPENDENT_JOBS) {
+            Instant watermark = maintenanceRepository.findWatermark(job);
+            if (watermark == null || watermark.isBefore(monthEnd)) {
+                log.warn("Not archiving {}: job {} is at {}, before {}", partition, job, watermark, monthEnd);
+                return false;
+            }
+        }
+
+        String fileName = "history-" + monthStart.format(PARTITION_SUFFIX) + ".seg";
+        Path path = Path.of(dir).resolve(fileName);
+        long startedAt = System.currentTimeMillis();
+        long size;
+        long rows;
+        int blocks;
+        try (HistorySegmentWriter writer = new HistorySegmentWriter(path, blockRows)) {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            try {
+                readOnly.executeWithoutResult(status -> maintenanceRepository.streamPartition(partition, fetchSize, rs -> {
+                    try {
+                        writer.append(HistoryMaintenanceRepository.mapHistory(rs));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            size = writer.finish();
+            rows = writer.getRows();
+            blocks = writer.getBlocks();
+        }
+        // Reopening the finished file checks its footer before anything is deleted.
+        HistorySegment segment = HistorySegment.open(path);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            maintenanceRepository.lockWatermark(JOB);
+            if (maintenanceRepository.segmentExists(monthStart)) {
+                throw new IllegalStateException("Month " + monthStart + " is already archived");
+            }
+            maintenanceRepository.detachAndDropPartition(partition);
+            maintenanceRepository.insertSegment(new Segment(monthStart, fileName, rows, blocks, size, Instant.now()));
+            maintenanceRepository.updateWatermark(JOB, monthEnd);
+        });
+        openSegments.put(monthStart, segment);
+        log.info("Archived {} ({} rows, {} blocks, {} bytes) to {} in {} ms",
+                partition, rows, blocks, size, path, System.currentTimeMillis() - startedAt);
+        return true;
+    }
+
+    // Everything strictly before this instant lives only in segments; null means nothing is archived.
+    public Instant getHotHorizon() {
+        List<Segment> current = segments;
+        return current.isEmpty() ? null : current.get(0).monthStart().plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    // Continues a newest-first keyset walk of the user's history into archived months.
+    public List<TransactionHistory> findBefore(UUID userId, Instant timestamp, UUID id, int limit) {
+        List<TransactionHistory> rows = new ArrayList<>();
+        for (Segment meta : segments) {
+            if (rows.size() >= limit) {
+                break;
+            }
+            Instant monthStart = meta.monthStart().atStartOfDay(ZoneOffset.UTC).toInstant();
+            if (timestamp != null && !monthStart.isBefore(timestamp)) {
+                continue;
+            }
+            try {
+                rows.addAll(segment(meta).findBefore(userId, timestamp, id, limit - rows.size()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archived history " + meta.fileName(), e);
+            }
+        }
+        return rows;
+    }
+
+    private HistorySegment segment(Segment meta) throws IOException {
+        HistorySegment segment = openSegments.get(meta.monthStart());
+        if (segment == null) {
+            segment = HistorySegment.open(Path.of(dir).resolve(meta.fileName()));
+            openSegments.putIfAbsent(meta.monthStart(), segment);
+        }
+        return segment;
+    }
+
+    private static LocalDate parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX).atDay(1);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.paypulse.wallet.archive;
+
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.TransactionHistory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Read-only view of a segment file. The file is memory-mapped once, in windows of at most 1 GiB since a single
+// mapping cannot exceed 2 GiB; all file offsets stay long. A lookup binary-searches the sparse index and inflates
+// only the blocks that can hold the requested user's rows.
+public class HistorySegment {
+
+    static final long WINDOW_BYTES = 1L << 30;
+
+    private final Path path;
+    private final MappedByteBuffer[] windows;
+    private final long windowBytes;
+    private final int blockCount;
+    private final long rows;
+    private final long indexOffset;
+
+    private HistorySegment(Path path, MappedByteBuffer[] windows, long windowBytes, int blockCount, long rows,
+                           long indexOffset) {
+        this.path = path;
+        this.windows = windows;
+        this.windowBytes = windowBytes;
+        this.blockCount = blockCount;
+        this.rows = rows;
+        this.indexOffset = indexOffset;
+    }
+
+    public static HistorySegment open(Path path) throws IOException {
+        return open(path, WINDOW_BYTES);
+    }
+
+    static HistorySegment open(Path path, long windowBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HistorySegmentWriter.HEADER_BYTES + HistorySegmentWriter.FOOTER_BYTES) {
+                throw new IOException("Segment " + path + " is truncated");
+            }
+            MappedByteBuffer[] windows = new MappedByteBuffer[Math.toIntExact((size + windowBytes - 1) / windowBytes)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * windowBytes;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, size - start));
+            }
+            ByteBuffer header = slice(windows, windowBytes, 0, HistorySegmentWriter.HEADER_BYTES);
+            if (header.getInt(0) != HistorySegmentWriter.MAGIC || header.getInt(4) != HistorySegmentWriter.VERSION) {
+                throw new IOException("Segment " + path + " has an unknown header");
+            }
+            long footerOffset = size - HistorySegmentWriter.FOOTER_BYTES;
+            ByteBuffer footer = slice(windows, windowBytes, footerOffset, HistorySegmentWriter.FOOTER_BYTES);
+            long indexOffset = footer.getLong(0);
+            int blockCount = footer.getInt(8);
+            long rows = footer.getLong(12);
+            if (footer.getInt(20) != HistorySegmentWriter.MAGIC || blockCount < 0
+                    || indexOffset + (long) blockCount * HistorySegmentWriter.INDEX_ENTRY_BYTES != footerOffset) {
+                throw new IOException("Segment " + path + " has a corrupt footer");
+            }
+            return new HistorySegment(path, windows, windowBytes, blockCount, rows, indexOffset);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // Up to limit rows of the user strictly older than (timestamp, id), newest first; a null timestamp starts at the newest row.
+    public List<TransactionHistory> findBefore(UUID userId, Instant timestamp, UUID id, int limit) throws IOException {
+        List<TransactionHistory> result = new ArrayList<>();
+        if (limit <= 0 || blockCount == 0) {
+            return result;
+        }
+        SegmentKey start = timestamp != null
+                ? SegmentKey.of(userId, timestamp, id != null ? id : new UUID(-1L, -1L))
+                : SegmentKey.newestOf(userId);
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        Inflater inflater = new Inflater();
+        try {
+            for (int block = Math.max(0, lastBlockAtOrBefore(start)); block < blockCount; block++) {
+                if (block > 0 && firstKey(block).compareTo(start) > 0 && !firstKey(block).sameUser(msb, lsb)) {
+                    break;
+                }
+                ByteBuffer raw = inflate(block, inflater);
+                int blockRows = getInt(entryOffset(block) + 56);
+                for (int i = 0; i < blockRows; i++) {
+                    SegmentKey key = new SegmentKey(raw.getLong(), raw.getLong(), raw.getLong(), raw.getLong(), raw.getLong());
+                    long amount = raw.getLong();
+                    String description = raw.get() != 0 ? readUtf(raw) : null;
+                    if (key.compareTo(start) <= 0) {
+                        continue;
+                    }
+                    if (!key.sameUser(msb, lsb)) {
+                        return result;
+                    }
+                    result.add(TransactionHistory.builder()
+                            .id(new UUID(key.idMsb(), key.idLsb()))
+                            .userId(userId)
+                            .amount(Money.ofMinor(amount, Money.DEFAULT_CURRENCY).toBigDecimal())
+                            .description(description)
+                            .timestamp(SegmentKey.fromMicros(key.timestampMicros()))
+                            .build());
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Segment " + path + " has a corrupt block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private int lastBlockAtOrBefore(SegmentKey key) {
+        int low = 0;
+        int high = blockCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstKey(mid).compareTo(key) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private SegmentKey firstKey(int block) {
+        ByteBuffer entry = slice(entryOffset(block), 40);
+        return new SegmentKey(entry.getLong(0), entry.getLong(8), entry.getLong(16), entry.getLong(24), entry.getLong(32));
+    }
+
+    private ByteBuffer inflate(int block, Inflater inflater) throws DataFormatException {
+        long entry = entryOffset(block);
+        long offset = getLong(entry + 40);
+        int compressed = getInt(entry + 48);
+        byte[] raw = new byte[getInt(entry + 52)];
+        inflater.reset();
+        inflater.setInput(slice(offset, compressed));
+        int read = 0;
+        while (read < raw.length && !inflater.finished()) {
+            int n = inflater.inflate(raw, read, raw.length - read);
+            if (n == 0 && inflater.needsInput()) {
+                throw new DataFormatException("Unexpected end of block " + block);
+            }
+            read += n;
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private long entryOffset(int block) {
+        return indexOffset + (long) block * HistorySegmentWriter.INDEX_ENTRY_BYTES;
+    }
+
+    private long getLong(long position) {
+        return slice(position, Long.BYTES).getLong(0);
+    }
+
+    private int getInt(long position) {
+        return slice(position, Integer.BYTES).getInt(0);
+    }
+
+    private ByteBuffer slice(long position, int length) {
+        return slice(windows, windowBytes, position, length);
+    }
+
+    // A view of the range when it lies in one window; a range straddling windows is copied out.
+    private static ByteBuffer slice(MappedByteBuffer[] windows, long windowBytes, long position, int length) {
+        MappedByteBuffer window = windows[(int) (position / windowBytes)];
+        int offset = (int) (position % windowBytes);
+        if (offset + length <= window.limit()) {
+            return window.slice(offset, length);
+        }
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long at = position + copied;
+            MappedByteBuffer part = windows[(int) (at / windowBytes)];
+            int partOffset = (int) (at % windowBytes);
+            int n = Math.min(length - copied, part.limit() - partOffset);
+            part.get(partOffset, bytes, copied, n);
+            copied += n;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    // Mirrors DataOutputStream.writeUTF: an unsigned short length followed by modified UTF-8.
+    private static String readUtf(ByteBuffer raw) {
+        int length = Short.toUnsignedInt(raw.getShort());
+        char[] chars = new char[length];
+        int count = 0;
+        int end = raw.position() + length;
+        while (raw.position() < end) {
+            int a = raw.get() & 0xFF;
+            if (a < 0x80) {
+                chars[count++] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                int b = raw.get() & 0x3F;
+                chars[count++] = (char) (((a & 0x1F) << 6) | b);
+            } else {
+                int b = raw.get() & 0x3F;
+                int c = raw.get() & 0x3F;
+                chars[count++] = (char) (((a & 0x0F) << 12) | (b << 6) | c);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+}
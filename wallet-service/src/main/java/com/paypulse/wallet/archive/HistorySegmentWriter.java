@@ -0,0 +1,157 @@
+package com.paypulse.wallet.archive;
+
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.TransactionHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+// Writes one immutable segment: a header, deflated blocks of key-sorted rows, a sparse index with the
+// first key of every block, and a fixed-size footer. The file only appears under its final name once complete.
+public class HistorySegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x50504853;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int INDEX_ENTRY_BYTES = 60;
+    static final int FOOTER_BYTES = 24;
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final int blockRows;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream blockOut = new DataOutputStream(blockBytes);
+    private final List<IndexEntry> index = new ArrayList<>();
+    private byte[] compressBuffer = new byte[64 * 1024];
+    private SegmentKey blockFirstKey;
+    private SegmentKey lastKey;
+    private int blockRowCount;
+    private long rows;
+    private long position;
+    private boolean finished;
+
+    public HistorySegmentWriter(Path target, int blockRows) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.blockRows = blockRows;
+        Files.createDirectories(target.getParent());
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+    }
+
+    // Rows must arrive in segment key order (ORDER BY user_id, timestamp DESC, id DESC).
+    public void append(TransactionHistory row) throws IOException {
+        SegmentKey key = SegmentKey.of(row.getUserId(), row.getTimestamp(), row.getId());
+        if (lastKey != null && key.compareTo(lastKey) <= 0) {
+            throw new IllegalStateException("Segment rows out of order at " + row.getId());
+        }
+        if (blockRowCount == 0) {
+            blockFirstKey = key;
+        }
+        blockOut.writeLong(key.userMsb());
+        blockOut.writeLong(key.userLsb());
+        blockOut.writeLong(key.timestampMicros());
+        blockOut.writeLong(key.idMsb());
+        blockOut.writeLong(key.idLsb());
+        blockOut.writeLong(Money.of(row.getAmount()).minor());
+        blockOut.writeBoolean(row.getDescription() != null);
+        if (row.getDescription() != null) {
+            blockOut.writeUTF(row.getDescription());
+        }
+        lastKey = key;
+        rows++;
+        if (++blockRowCount >= blockRows) {
+            flushBlock();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getBlocks() {
+        return index.size();
+    }
+
+    // Returns the size of the finished file.
+    public long finish() throws IOException {
+        flushBlock();
+        long indexOffset = position;
+        ByteBuffer entries = ByteBuffer.allocate(index.size() * INDEX_ENTRY_BYTES);
+        for (IndexEntry entry : index) {
+            entries.putLong(entry.firstKey().userMsb())
+                    .putLong(entry.firstKey().userLsb())
+                    .putLong(entry.firstKey().timestampMicros())
+                    .putLong(entry.firstKey().idMsb())
+                    .putLong(entry.firstKey().idLsb())
+                    .putLong(entry.offset())
+                    .putInt(entry.compressedLength())
+                    .putInt(entry.rawLength())
+                    .putInt(entry.rows());
+        }
+        writeFully(entries.flip());
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES)
+                .putLong(indexOffset).putInt(index.size()).putLong(rows).putInt(MAGIC).flip();
+        writeFully(footer);
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRowCount == 0) {
+            return;
+        }
+        byte[] raw = blockBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == compressBuffer.length) {
+                compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+            }
+            compressed += deflater.deflate(compressBuffer, compressed, compressBuffer.length - compressed);
+        }
+        index.add(new IndexEntry(blockFirstKey, position, compressed, raw.length, blockRowCount));
+        writeFully(ByteBuffer.wrap(compressBuffer, 0, compressed));
+        blockBytes.reset();
+        blockRowCount = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    record IndexEntry(SegmentKey firstKey, long offset, int compressedLength, int rawLength, int rows) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.paypulse.wallet.archive;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Segment sort order: user_id ascending, then (timestamp, id) descending. UUIDs compare as unsigned bytes, like Postgres.
+record SegmentKey(long userMsb, long userLsb, long timestampMicros, long idMsb, long idLsb)
+        implements Comparable<SegmentKey> {
+
+    static SegmentKey of(UUID userId, Instant timestamp, UUID id) {
+        return new SegmentKey(userId.getMostSignificantBits(), userId.getLeastSignificantBits(),
+                toMicros(timestamp), id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    // Sorts before every row of the user, i.e. newer than anything stored.
+    static SegmentKey newestOf(UUID userId) {
+        return new SegmentKey(userId.getMostSignificantBits(), userId.getLeastSignificantBits(), Long.MAX_VALUE, -1L, -1L);
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    boolean sameUser(long msb, long lsb) {
+        return userMsb == msb && userLsb == lsb;
+    }
+
+    @Override
+    public int compareTo(SegmentKey other) {
+        int cmp = Long.compareUnsigned(userMsb, other.userMsb);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(userLsb, other.userLsb);
+        }
+        if (cmp == 0) {
+            cmp = Long.compare(other.timestampMicros, timestampMicros);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(other.idMsb, idMsb);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(other.idLsb, idLsb);
+        }
+        return cmp;
+    }
+}
@@ -1,19 +1,42 @@
 package com.paypulse.wallet.controller;
 
 import com.paypulse.common.BalanceResponse;
+import com.paypulse.common.BulkFundingResponse;
+import com.paypulse.common.CursorPage;
 import com.paypulse.common.DepositRequest;
+import com.paypulse.common.FundsCaptureRequest;
+import com.paypulse.common.FundsHoldRequest;
+import com.paypulse.common.FundsHoldResponse;
 import com.paypulse.common.HistoryResponse;
+import com.paypulse.common.StatementResponse;
+import com.paypulse.common.WalletBatchRequest;
+import com.paypulse.common.WalletBatchResponse;
+import com.paypulse.common.WalletTransferRequest;
 import com.paypulse.common.WithdrawRequest;
+import com.paypulse.wallet.service.BalanceSnapshotService;
+import com.paypulse.wallet.service.BulkFundingService;
+import com.paypulse.wallet.service.HistoryExportService;
 import com.paypulse.wallet.service.OutboxProcessor;
+import com.paypulse.wallet.service.WalletBatchService;
+import com.paypulse.wallet.service.WalletHoldService;
+import com.paypulse.wallet.service.WalletRollupService;
 import com.paypulse.wallet.service.WalletService;
+import com.paypulse.wallet.service.WalletStripeService;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -23,6 +46,13 @@ public class WalletController {
 
     private final WalletService walletService;
     private final OutboxProcessor outboxProcessor;
+    private final WalletBatchService walletBatchService;
+    private final WalletHoldService walletHoldService;
+    private final HistoryExportService historyExportService;
+    private final WalletStripeService walletStripeService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final WalletRollupService walletRollupService;
+    private final BulkFundingService bulkFundingService;
 
     @Operation(summary = "Получить баланс пользователя")
     @GetMapping("/balance")
@@ -31,6 +61,28 @@ public class WalletController {
         return walletService.getBalance();
     }
 
+    @Operation(summary = "Получить баланс пользователя на момент времени")
+    @GetMapping("/balance/as-of")
+    @ResponseStatus(HttpStatus.OK)
+    public BalanceResponse getBalanceAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        return balanceSnapshotService.getBalanceAsOf(at);
+    }
+
+    @Operation(summary = "Месячная выписка по дням")
+    @GetMapping("/statements/monthly")
+    @ResponseStatus(HttpStatus.OK)
+    public StatementResponse getMonthlyStatement(@RequestParam int year, @RequestParam int month) {
+        return walletRollupService.getMonthlyStatement(year, month);
+    }
+
+    @Operation(summary = "Годовая выписка по месяцам")
+    @GetMapping("/statements/yearly")
+    @ResponseStatus(HttpStatus.OK)
+    public StatementResponse getYearlyStatement(@RequestParam int year) {
+        return walletRollupService.getYearlyStatement(year);
+    }
+
     @Operation(summary = "Пополнить баланс")
     @PostMapping("/deposit")
     @ResponseStatus(HttpStatus.OK)
@@ -45,6 +97,43 @@ public class WalletController {
         return walletService.withdraw(request);
     }
 
+    @Operation(summary = "Пакетные пополнения и списания (ADMIN)")
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public WalletBatchResponse batch(@Valid @RequestBody WalletBatchRequest request) {
+        return walletBatchService.execute(request.operations());
+    }
+
+    @Operation(summary = "Зарезервировать средства (hold)")
+    @PostMapping("/holds")
+    @ResponseStatus(HttpStatus.OK)
+    public FundsHoldResponse reserve(@Valid @RequestBody FundsHoldRequest request) {
+        return walletHoldService.reserve(request);
+    }
+
+    @Operation(summary = "Получить резерв средств")
+    @GetMapping("/holds/{holdId}")
+    @ResponseStatus(HttpStatus.OK)
+    public FundsHoldResponse getHold(@PathVariable UUID holdId) {
+        return walletHoldService.getHold(holdId);
+    }
+
+    @Operation(summary = "Списать зарезервированные средства")
+    @PostMapping("/holds/{holdId}/capture")
+    @ResponseStatus(HttpStatus.OK)
+    public FundsHoldResponse capture(@PathVariable UUID holdId,
+                                     @RequestBody(required = false) FundsCaptureRequest request) {
+        return walletHoldService.capture(holdId, request);
+    }
+
+    @Operation(summary = "Снять резерв средств")
+    @PostMapping("/holds/{holdId}/release")
+    @ResponseStatus(HttpStatus.OK)
+    public FundsHoldResponse release(@PathVariable UUID holdId) {
+        return walletHoldService.release(holdId);
+    }
+
     @Operation(summary = "История операций пользователя")
     @GetMapping("/history")
     @ResponseStatus(HttpStatus.OK)
@@ -56,6 +145,25 @@ public class WalletController {
         return walletService.getHistory(page, size, sortBy, sortDir);
     }
 
+    @Operation(summary = "История операций пользователя (курсорная пагинация)")
+    @GetMapping("/history/cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<HistoryResponse> getHistoryByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return walletService.getHistoryByCursor(cursor, size);
+    }
+
+    @Operation(summary = "Выгрузка истории операций пользователя (NDJSON/CSV)")
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        HistoryExportService.Format exportFormat = HistoryExportService.Format.of(format);
+        return exportResponse(exportFormat, historyExportService.exportOwnHistory(exportFormat, from, to));
+    }
+
     @Operation(summary = "Вся история операций (ADMIN)")
     @GetMapping("/all-history")
     @PreAuthorize("hasRole('ADMIN')")
@@ -68,6 +176,28 @@ public class WalletController {
         return walletService.getAllHistory(page, size, sortBy, sortDir);
     }
 
+    @Operation(summary = "Вся история операций (ADMIN, курсорная пагинация)")
+    @GetMapping("/all-history/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<HistoryResponse> getAllHistoryByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return walletService.getAllHistoryByCursor(cursor, size);
+    }
+
+    @Operation(summary = "Выгрузка истории операций (ADMIN, NDJSON/CSV)")
+    @GetMapping("/all-history/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAllHistory(
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        HistoryExportService.Format exportFormat = HistoryExportService.Format.of(format);
+        return exportResponse(exportFormat, historyExportService.export(userId, exportFormat, from, to));
+    }
+
     @Operation(summary = "Метрики outbox")
     @GetMapping("/outbox-metrics")
     @ResponseStatus(HttpStatus.OK)
@@ -83,10 +213,94 @@ public class WalletController {
         walletService.adminDeposit(userId.toString(), request);
     }
 
+    @Operation(summary = "Запустить массовое пополнение кошельков из CSV/NDJSON потока (только ADMIN)")
+    @PostMapping("/admin/funding")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkFundingResponse bulkFund(@RequestParam(defaultValue = "csv") String format,
+                                        @RequestParam String description,
+                                        @RequestParam(defaultValue = "0") long skipLines,
+                                        InputStream body) {
+        return bulkFundingService.fund(body, BulkFundingService.Format.of(format), description, skipLines);
+    }
+
+    @Operation(summary = "Статус задания массового пополнения (только ADMIN)")
+    @GetMapping("/admin/funding/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkFundingResponse getBulkFundingJob(@PathVariable UUID jobId) {
+        return bulkFundingService.getJob(jobId);
+    }
+
+    @Operation(summary = "Последние задания массового пополнения (только ADMIN)")
+    @GetMapping("/admin/funding")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public List<BulkFundingResponse> getBulkFundingJobs() {
+        return bulkFundingService.getJobs();
+    }
+
+    @Operation(summary = "Месячная выписка пользователя (только ADMIN)")
+    @GetMapping("/admin/statements/{userId}/monthly")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public StatementResponse getUserMonthlyStatement(@PathVariable UUID userId,
+                                                     @RequestParam int year,
+                                                     @RequestParam int month) {
+        return walletRollupService.getMonthlyStatement(userId, year, month);
+    }
+
+    @Operation(summary = "Годовая выписка пользователя (только ADMIN)")
+    @GetMapping("/admin/statements/{userId}/yearly")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public StatementResponse getUserYearlyStatement(@PathVariable UUID userId, @RequestParam int year) {
+        return walletRollupService.getYearlyStatement(userId, year);
+    }
+
+    @Operation(summary = "Включить распределённый (striped) баланс для горячего кошелька (ADMIN)")
+    @PostMapping("/admin/stripes/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public void enableStripes(@PathVariable UUID userId, @RequestParam(defaultValue = "16") int stripes) {
+        walletStripeService.enable(userId, stripes);
+    }
+
+    @Operation(summary = "Отключить распределённый (striped) баланс (ADMIN)")
+    @DeleteMapping("/admin/stripes/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseStatus(HttpStatus.OK)
+    public void disableStripes(@PathVariable UUID userId) {
+        walletStripeService.disable(userId);
+    }
+
     @Operation(summary = "Внутреннее пополнение баланса")
     @PostMapping("/internal/deposit/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public void internalDeposit(@PathVariable UUID userId, @Valid @RequestBody DepositRequest request) {
         walletService.adminDeposit(userId.toString(), request);
     }
+
+    @Operation(summary = "Внутренний перевод между кошельками")
+    @PostMapping("/internal/transfer")
+    @ResponseStatus(HttpStatus.OK)
+    public void internalTransfer(@Valid @RequestBody WalletTransferRequest request) {
+        walletService.transfer(request);
+    }
+
+    @Operation(summary = "Внутренний пакет операций саги (SERVICE)")
+    @PostMapping("/internal/batch")
+    @PreAuthorize("hasRole('SERVICE')")
+    @ResponseStatus(HttpStatus.OK)
+    public WalletBatchResponse internalBatch(@Valid @RequestBody WalletBatchRequest request) {
+        return walletBatchService.execute(request.operations());
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(HistoryExportService.Format format,
+                                                                 StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"history." + format.getExtension() + "\"")
+                .body(body);
+    }
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package com.paypulse.wallet.entity;
 
+import com.paypulse.common.Money;
+import com.paypulse.common.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
+@Table(name = "wallets")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,5 +23,15 @@ public class Wallet {
     @Id
     private UUID userId;
 
-    private BigDecimal balance;
-}
\ No newline at end of file
+    @Convert(converter = MoneyConverter.class)
+    private Money balance;
+
+    @Builder.Default
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money held = Money.zero();
+
+    public Money getAvailable() {
+        return balance.minus(held);
+    }
+}
@@ -0,0 +1,54 @@
+package com.paypulse.wallet.entity;
+
+import com.paypulse.common.Money;
+import com.paypulse.common.MoneyConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "wallet_holds")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletHold {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HoldStatus status;
+
+    @Column(unique = true)
+    private String reference;
+
+    private String description;
+
+    @Column(name = "captured_to")
+    private UUID capturedTo;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public enum HoldStatus {
+        ACTIVE,
+        CAPTURED,
+        RELEASED
+    }
+}
@@ -0,0 +1,118 @@
+package com.paypulse.wallet.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.BulkFundingError;
+import com.paypulse.common.BulkFundingResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Progress of bulk funding jobs. A running job writes its progress in the same transaction as each chunk, so
+// last_committed_line is exactly the line to resume after; updated_at doubles as the heartbeat of the owning instance.
+@Repository
+@RequiredArgsConstructor
+public class BulkFundingJobRepository {
+
+    private static final TypeReference<List<BulkFundingError>> ERRORS = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void insert(BulkFundingResponse job, String startedBy) {
+        jdbcTemplate.update(
+                "INSERT INTO wallet_funding_jobs (id, status, started_by, last_committed_line, started_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                job.jobId(), job.status(), startedBy, job.lastCommittedLine(),
+                Timestamp.from(job.startedAt()), Timestamp.from(Instant.now()));
+    }
+
+    public void update(BulkFundingResponse job) {
+        jdbcTemplate.update(
+                "UPDATE wallet_funding_jobs SET status = ?, rows_read = ?, rows_applied = ?, rows_rejected = ?, "
+                        + "chunks = ?, last_committed_line = ?, total_amount = ?, errors = ?, failure = ?, "
+                        + "finished_at = ?, updated_at = ? WHERE id = ?",
+                job.status(), job.rowsRead(), job.rowsApplied(), job.rowsRejected(), job.chunksCommitted(),
+                job.lastCommittedLine(), job.totalAmount(), writeErrors(job.errors()), job.failure(),
+                job.finishedAt() != null ? Timestamp.from(job.finishedAt()) : null, Timestamp.from(Instant.now()),
+                job.jobId());
+    }
+
+    public BulkFundingResponse find(UUID id) {
+        List<BulkFundingResponse> jobs = jdbcTemplate.query("SELECT * FROM wallet_funding_jobs WHERE id = ?",
+                mapper(), id);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    public List<BulkFundingResponse> findRecent(int limit) {
+        return jdbcTemplate.query("SELECT * FROM wallet_funding_jobs ORDER BY started_at DESC LIMIT ?", mapper(), limit);
+    }
+
+    public void touch(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE wallet_funding_jobs SET updated_at = ? WHERE id = ANY (?)",
+                Timestamp.from(Instant.now()), ids.toArray(UUID[]::new));
+    }
+
+    // Jobs whose instance stopped sending heartbeats died with it; their spooled input is gone.
+    public int markInterrupted(Instant staleBefore) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbcTemplate.update(
+                "UPDATE wallet_funding_jobs SET status = 'INTERRUPTED', failure = 'Instance stopped while the job was running', "
+                        + "finished_at = ?, updated_at = ? WHERE status IN ('QUEUED', 'RUNNING') AND updated_at < ?",
+                now, now, Timestamp.from(staleBefore));
+    }
+
+    public int deleteFinishedBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM wallet_funding_jobs WHERE finished_at < ?", Timestamp.from(cutoff));
+    }
+
+    private RowMapper<BulkFundingResponse> mapper() {
+        return (rs, rowNum) -> {
+            Timestamp finishedAt = rs.getTimestamp("finished_at");
+            return new BulkFundingResponse(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("status"),
+                    rs.getLong("rows_read"),
+                    rs.getLong("rows_applied"),
+                    rs.getLong("rows_rejected"),
+                    rs.getLong("chunks"),
+                    rs.getLong("last_committed_line"),
+                    rs.getBigDecimal("total_amount"),
+                    rs.getTimestamp("started_at").toInstant(),
+                    finishedAt != null ? finishedAt.toInstant() : null,
+                    rs.getString("failure"),
+                    readErrors(rs.getString("errors")));
+        };
+    }
+
+    private String writeErrors(List<BulkFundingError> errors) {
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize funding errors", e);
+        }
+    }
+
+    private List<BulkFundingError> readErrors(String json) {
+        if (json == null) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, ERRORS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read funding errors", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.wallet.entity.TransactionHistory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+// Partition DDL, job watermarks, balance snapshots and archived segments over transaction_history.
+@Repository
+@RequiredArgsConstructor
+public class HistoryMaintenanceRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findHistoryPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = 'transaction_history' ORDER BY c.relname",
+                String.class);
+    }
+
+    public String partitionName(LocalDate monthStart) {
+        return "transaction_history_" + monthStart.format(PARTITION_SUFFIX);
+    }
+
+    public void createMonthlyPartition(LocalDate monthStart) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(monthStart)
+                + " PARTITION OF transaction_history FOR VALUES FROM ('" + monthStart + "') TO ('"
+                + monthStart.plusMonths(1) + "')");
+    }
+
+    // Locks the job's watermark row, creating it on first use, so concurrent instances run the job one at a time.
+    public Instant lockWatermark(String job) {
+        jdbcTemplate.update("INSERT INTO wallet_job_watermarks (job, watermark) VALUES (?, NULL) ON CONFLICT (job) DO NOTHING",
+                job);
+        Timestamp watermark = jdbcTemplate.queryForObject(
+                "SELECT watermark FROM wallet_job_watermarks WHERE job = ? FOR UPDATE", Timestamp.class, job);
+        return watermark != null ? watermark.toInstant() : null;
+    }
+
+    public Instant findWatermark(String job) {
+        List<Timestamp> watermarks = jdbcTemplate.queryForList(
+                "SELECT watermark FROM wallet_job_watermarks WHERE job = ?", Timestamp.class, job);
+        return watermarks.isEmpty() || watermarks.get(0) == null ? null : watermarks.get(0).toInstant();
+    }
+
+    public void updateWatermark(String job, Instant watermark) {
+        jdbcTemplate.update("UPDATE wallet_job_watermarks SET watermark = ? WHERE job = ?", Timestamp.from(watermark), job);
+    }
+
+    public Instant findEarliestHistory() {
+        Timestamp earliest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM transaction_history", Timestamp.class);
+        return earliest != null ? earliest.toInstant() : null;
+    }
+
+    // Each active wallet's snapshot is its previous snapshot plus the history delta of the (from, to] window.
+    public int insertSnapshots(Instant from, Instant to) {
+        return jdbcTemplate.update(
+                "INSERT INTO wallet_balance_snapshots (user_id, snapshot_at, balance) "
+                        + "SELECT d.user_id, ?, COALESCE(p.balance, 0) + d.delta "
+                        + "FROM (SELECT user_id, SUM(amount) AS delta FROM transaction_history "
+                        + "      WHERE timestamp > ? AND timestamp <= ? GROUP BY user_id) d "
+                        + "LEFT JOIN LATERAL (SELECT s.balance FROM wallet_balance_snapshots s "
+                        + "      WHERE s.user_id = d.user_id AND s.snapshot_at <= ? "
+                        + "      ORDER BY s.snapshot_at DESC LIMIT 1) p ON true "
+                        + "ON CONFLICT (user_id, snapshot_at) DO NOTHING",
+                Timestamp.from(to), Timestamp.from(from), Timestamp.from(to), Timestamp.from(from));
+    }
+
+    public Snapshot findSnapshotAtOrBefore(UUID userId, Instant at) {
+        List<Snapshot> snapshots = jdbcTemplate.query(
+                "SELECT snapshot_at, balance FROM wallet_balance_snapshots "
+                        + "WHERE user_id = ? AND snapshot_at <= ? ORDER BY snapshot_at DESC LIMIT 1",
+                (rs, rowNum) -> new Snapshot(rs.getTimestamp("snapshot_at").toInstant(), rs.getBigDecimal("balance")),
+                userId, Timestamp.from(at));
+        return snapshots.isEmpty() ? null : snapshots.get(0);
+    }
+
+    public BigDecimal sumHistory(UUID userId, Instant after, Instant upTo) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM transaction_history "
+                        + "WHERE user_id = ? AND timestamp > ? AND timestamp <= ?",
+                BigDecimal.class, userId, Timestamp.from(after), Timestamp.from(upTo));
+    }
+
+    // Rows come in segment order; like any Postgres stream this needs a transaction for the fetch size to apply.
+    public void streamPartition(String partition, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, user_id, amount, description, timestamp FROM " + partition
+                            + " ORDER BY user_id, timestamp DESC, id DESC",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    public void detachAndDropPartition(String partition) {
+        jdbcTemplate.execute("ALTER TABLE transaction_history DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+
+    public boolean segmentExists(LocalDate monthStart) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM wallet_history_segments WHERE month_start = ?)", Boolean.class, monthStart));
+    }
+
+    public void insertSegment(Segment segment) {
+        jdbcTemplate.update("INSERT INTO wallet_history_segments "
+                        + "(month_start, file_name, row_count, block_count, size_bytes, archived_at) VALUES (?, ?, ?, ?, ?, ?)",
+                segment.monthStart(), segment.fileName(), segment.rowCount(), segment.blockCount(), segment.sizeBytes(),
+                Timestamp.from(segment.archivedAt()));
+    }
+
+    public List<Segment> findSegments() {
+        return jdbcTemplate.query("SELECT month_start, file_name, row_count, block_count, size_bytes, archived_at "
+                        + "FROM wallet_history_segments ORDER BY month_start DESC",
+                (rs, rowNum) -> new Segment(rs.getObject("month_start", LocalDate.class), rs.getString("file_name"),
+                        rs.getLong("row_count"), rs.getInt("block_count"), rs.getLong("size_bytes"),
+                        rs.getTimestamp("archived_at").toInstant()));
+    }
+
+    public static TransactionHistory mapHistory(ResultSet rs) throws SQLException {
+        return TransactionHistory.builder()
+                .id(rs.getObject("id", UUID.class))
+                .userId(rs.getObject("user_id", UUID.class))
+                .amount(rs.getBigDecimal("amount"))
+                .description(rs.getString("description"))
+                .timestamp(rs.getTimestamp("timestamp").toInstant())
+                .build();
+    }
+
+    public record Segment(LocalDate monthStart, String fileName, long rowCount, int blockCount, long sizeBytes,
+                          Instant archivedAt) {
+    }
+
+    public record Snapshot(Instant snapshotAt, BigDecimal balance) {
+    }
+}
@@ -4,12 +4,39 @@ import com.paypulse.wallet.entity.TransactionHistory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface HistoryRepository extends JpaRepository<TransactionHistory, Long> {
 
     Page<TransactionHistory> findByUserIdOrderByTimestampDesc(UUID userId, Pageable pageable);
-}
\ No newline at end of file
+
+    @Query(value = "SELECT * FROM transaction_history WHERE user_id = :userId "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionHistory> findLatestByUserId(@Param("userId") UUID userId, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM transaction_history WHERE user_id = :userId "
+            + "AND (timestamp, id) < (:timestamp, :id) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionHistory> findByUserIdBefore(@Param("userId") UUID userId,
+                                                @Param("timestamp") Instant timestamp,
+                                                @Param("id") UUID id,
+                                                @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM transaction_history "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionHistory> findLatest(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM transaction_history "
+            + "WHERE (timestamp, id) < (:timestamp, :id) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionHistory> findBefore(@Param("timestamp") Instant timestamp,
+                                        @Param("id") UUID id,
+                                        @Param("limit") int limit);
+}
@@ -0,0 +1,43 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.common.WalletCommand;
+import com.paypulse.common.WalletCommandReply;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+// Dedup log of saga commands: a command id is applied at most once, redeliveries get the stored reply.
+@Repository
+@RequiredArgsConstructor
+public class WalletCommandRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Returns false when the command was already claimed; the row lock is held until the caller commits.
+    public boolean claim(WalletCommand command) {
+        return jdbcTemplate.update(
+                "INSERT INTO wallet_processed_commands (command_id, transaction_id, type, user_id, processed_at) "
+                        + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (command_id) DO NOTHING",
+                command.commandId(), command.transactionId(), command.type(), command.userId(),
+                Timestamp.from(Instant.now())) > 0;
+    }
+
+    public void complete(WalletCommandReply reply) {
+        jdbcTemplate.update(
+                "UPDATE wallet_processed_commands SET success = ?, reason = ? WHERE command_id = ?",
+                reply.success(), reply.reason(), reply.commandId());
+    }
+
+    public WalletCommandReply findReply(WalletCommand command) {
+        return jdbcTemplate.query(
+                "SELECT success, reason FROM wallet_processed_commands WHERE command_id = ? AND success IS NOT NULL",
+                rs -> rs.next()
+                        ? new WalletCommandReply(command.commandId(), command.transactionId(), command.type(),
+                                command.userId(), rs.getBoolean("success"), rs.getString("reason"))
+                        : null,
+                command.commandId());
+    }
+}
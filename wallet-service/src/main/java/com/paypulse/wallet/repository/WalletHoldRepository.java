@@ -0,0 +1,22 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.wallet.entity.WalletHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface WalletHoldRepository extends JpaRepository<WalletHold, UUID> {
+
+    Optional<WalletHold> findByReference(String reference);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM WalletHold h WHERE h.id = :id")
+    Optional<WalletHold> findByIdForUpdate(@Param("id") UUID id);
+}
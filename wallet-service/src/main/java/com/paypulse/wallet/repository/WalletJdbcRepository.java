@@ -0,0 +1,247 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.OutboxEvent;
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.entity.Wallet;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class WalletJdbcRepository {
+
+    private static final ResultSetExtractor<Money> RETURNED_BALANCE =
+            rs -> rs.next() ? Money.of(rs.getBigDecimal("balance")) : null;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void provisionWallets(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO wallets (user_id, balance, held) VALUES (?, 0, 0) ON CONFLICT (user_id) DO NOTHING",
+                new ArrayList<>(userIds), userIds.size(),
+                (ps, userId) -> ps.setObject(1, userId));
+    }
+
+    public Map<UUID, Money> findBalances(Collection<UUID> userIds) {
+        Map<UUID, Money> balances = new HashMap<>();
+        selectBalances("SELECT user_id, balance FROM wallets WHERE user_id = ANY(?)", userIds)
+                .forEach((userId, balance) -> balances.put(userId, Money.of(balance)));
+        return balances;
+    }
+
+    // Returns the new balance, or null when the wallet is missing or its available funds do not cover the amount.
+    public Money debitIfAvailable(UUID userId, Money amount) {
+        BigDecimal value = amount.toBigDecimal();
+        return jdbcTemplate.query(
+                "UPDATE wallets SET balance = balance - ? WHERE user_id = ? AND balance - held >= ? RETURNING balance",
+                RETURNED_BALANCE, value, userId, value);
+    }
+
+    public Money creditUpsert(UUID userId, Money amount) {
+        return jdbcTemplate.query(
+                "INSERT INTO wallets (user_id, balance, held) VALUES (?, ?, 0) "
+                        + "ON CONFLICT (user_id) DO UPDATE SET balance = wallets.balance + EXCLUDED.balance "
+                        + "RETURNING balance",
+                RETURNED_BALANCE, userId, amount.toBigDecimal());
+    }
+
+    // Includes credits still parked on stripes of hot wallets.
+    public Map<UUID, BigDecimal> findTotalBalances(Collection<UUID> userIds) {
+        return selectBalances("SELECT w.user_id, w.balance + COALESCE(SUM(s.balance), 0) AS balance FROM wallets w "
+                + "LEFT JOIN wallet_stripes s ON s.user_id = w.user_id "
+                + "WHERE w.user_id = ANY(?) GROUP BY w.user_id, w.balance", userIds);
+    }
+
+    // Rows are locked in user_id order so overlapping lockers cannot deadlock.
+    public Map<UUID, Wallet> lockWallets(Collection<UUID> userIds) {
+        Map<UUID, Wallet> wallets = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return wallets;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, balance, held FROM wallets WHERE user_id = ANY(?) ORDER BY user_id FOR UPDATE");
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            UUID userId = rs.getObject("user_id", UUID.class);
+            wallets.put(userId, Wallet.builder()
+                    .userId(userId)
+                    .balance(Money.of(rs.getBigDecimal("balance")))
+                    .held(Money.of(rs.getBigDecimal("held")))
+                    .build());
+        });
+        return wallets;
+    }
+
+    public void updateBalances(Map<UUID, Money> balances) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, Money>> entries = new ArrayList<>(balances.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE wallets SET balance = ? WHERE user_id = ?",
+                entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setBigDecimal(1, entry.getValue().toBigDecimal());
+                    ps.setObject(2, entry.getKey());
+                });
+    }
+
+    // One multi-row upsert; rows go in user_id order so it takes row locks in the same order as lockWallets.
+    public int creditAll(Map<UUID, Money> amounts) {
+        if (amounts.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<UUID, Money>> entries = amounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        Object[] userIds = entries.stream().map(Map.Entry::getKey).toArray();
+        Object[] values = entries.stream().map(entry -> entry.getValue().toBigDecimal()).toArray();
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO wallets (user_id, balance, held) "
+                            + "SELECT t.user_id, t.amount, 0 FROM unnest(?, ?) AS t(user_id, amount) ORDER BY t.user_id "
+                            + "ON CONFLICT (user_id) DO UPDATE SET balance = wallets.balance + EXCLUDED.balance");
+            ps.setArray(1, con.createArrayOf("uuid", userIds));
+            ps.setArray(2, con.createArrayOf("numeric", values));
+            return ps;
+        });
+    }
+
+    // COPY runs on the transaction's own connection, so it commits or rolls back with the surrounding writes.
+    public long copyHistory(List<TransactionHistory> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        for (TransactionHistory row : rows) {
+            csv.append(row.getId()).append(',')
+                    .append(row.getUserId()).append(',')
+                    .append(row.getAmount().toPlainString()).append(',')
+                    .append(csvField(row.getDescription())).append(',')
+                    .append(Timestamp.from(row.getTimestamp())).append('\n');
+        }
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY transaction_history (id, user_id, amount, description, timestamp) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY into transaction_history failed", e);
+            }
+        });
+        return copied != null ? copied : 0;
+    }
+
+    public void insertHistory(List<TransactionHistory> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transaction_history (id, user_id, amount, description, timestamp) VALUES (?, ?, ?, ?, ?)",
+                rows, rows.size(),
+                (ps, row) -> {
+                    ps.setObject(1, row.getId());
+                    ps.setObject(2, row.getUserId());
+                    ps.setBigDecimal(3, row.getAmount());
+                    ps.setString(4, row.getDescription());
+                    ps.setTimestamp(5, Timestamp.from(row.getTimestamp()));
+                });
+    }
+
+    public void insertOutboxEvents(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (id, aggregate_id, aggregate_type, event_type, event_data, created_at, status, retry_count) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                events, events.size(),
+                (ps, event) -> {
+                    ps.setObject(1, event.getId());
+                    ps.setString(2, event.getAggregateId());
+                    ps.setString(3, event.getAggregateType());
+                    ps.setString(4, event.getEventType());
+                    ps.setString(5, event.getEventData());
+                    ps.setTimestamp(6, Timestamp.from(event.getCreatedAt()));
+                    ps.setString(7, event.getStatus().name());
+                    ps.setInt(8, event.getRetryCount());
+                });
+    }
+
+    // Postgres only streams through a server-side cursor with a fetch size inside a transaction.
+    public void streamHistory(UUID userId, Instant from, Instant to, int fetchSize, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, user_id, amount, description, timestamp FROM transaction_history WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            args.add(userId);
+        }
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+            args.add(Timestamp.from(to));
+        }
+        sql.append(" ORDER BY timestamp, id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private Map<UUID, BigDecimal> selectBalances(String sql, Collection<UUID> userIds) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return balances;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            balances.put(rs.getObject("user_id", UUID.class), rs.getBigDecimal("balance"));
+        });
+        return balances;
+    }
+}
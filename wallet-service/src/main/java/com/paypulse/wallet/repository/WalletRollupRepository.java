@@ -0,0 +1,79 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.common.StatementLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// Per-day credit/debit totals folded from transaction_history; statements read these instead of raw history.
+@Repository
+@RequiredArgsConstructor
+public class WalletRollupRepository {
+
+    private static final RowMapper<StatementLine> LINE = (rs, rowNum) -> new StatementLine(
+            rs.getDate("period").toLocalDate(),
+            rs.getBigDecimal("credits"),
+            rs.getBigDecimal("debits"),
+            rs.getLong("tx_count"),
+            rs.getBigDecimal("closing_balance"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The [from, to) window must not cross a day boundary of the JVM zone, in which history timestamps are stored
+    // and CAST(timestamp AS date) cuts days: a new day's opening balance is read from rows committed before this
+    // statement, so two days of the same user cannot be folded in one go.
+    public int fold(Instant from, Instant to) {
+        return jdbcTemplate.update(
+                "INSERT INTO wallet_daily_rollups AS r (user_id, day, credits, debits, tx_count, closing_balance) "
+                        + "SELECT d.user_id, d.day, d.credits, d.debits, d.tx_count, "
+                        + "       COALESCE(p.closing_balance, 0) + d.credits - d.debits "
+                        + "FROM (SELECT user_id, CAST(timestamp AS date) AS day, "
+                        + "             SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END) AS credits, "
+                        + "             SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END) AS debits, "
+                        + "             COUNT(*) AS tx_count "
+                        + "      FROM transaction_history WHERE timestamp >= ? AND timestamp < ? "
+                        + "      GROUP BY user_id, CAST(timestamp AS date)) d "
+                        + "LEFT JOIN LATERAL (SELECT closing_balance FROM wallet_daily_rollups p "
+                        + "      WHERE p.user_id = d.user_id AND p.day < d.day ORDER BY p.day DESC LIMIT 1) p ON true "
+                        + "ON CONFLICT (user_id, day) DO UPDATE SET "
+                        + "credits = r.credits + EXCLUDED.credits, "
+                        + "debits = r.debits + EXCLUDED.debits, "
+                        + "tx_count = r.tx_count + EXCLUDED.tx_count, "
+                        + "closing_balance = r.closing_balance + EXCLUDED.credits - EXCLUDED.debits",
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    public List<StatementLine> findDaily(UUID userId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT day AS period, credits, debits, tx_count, closing_balance FROM wallet_daily_rollups "
+                        + "WHERE user_id = ? AND day >= ? AND day < ? ORDER BY day",
+                LINE, userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<StatementLine> findMonthly(UUID userId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT CAST(date_trunc('month', day) AS date) AS period, SUM(credits) AS credits, "
+                        + "SUM(debits) AS debits, SUM(tx_count) AS tx_count, "
+                        + "(array_agg(closing_balance ORDER BY day DESC))[1] AS closing_balance "
+                        + "FROM wallet_daily_rollups WHERE user_id = ? AND day >= ? AND day < ? "
+                        + "GROUP BY 1 ORDER BY 1",
+                LINE, userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public BigDecimal findClosingBalanceBefore(UUID userId, LocalDate day) {
+        List<BigDecimal> balances = jdbcTemplate.queryForList(
+                "SELECT closing_balance FROM wallet_daily_rollups WHERE user_id = ? AND day < ? "
+                        + "ORDER BY day DESC LIMIT 1",
+                BigDecimal.class, userId, Date.valueOf(day));
+        return balances.isEmpty() ? BigDecimal.ZERO : balances.get(0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.paypulse.wallet.repository;
+
+import com.paypulse.common.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+// Sub-rows of hot wallets. A stripe is only ever locked alone (credit) or after its wallet row (sweep).
+@Repository
+@RequiredArgsConstructor
+public class WalletStripeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createStripes(UUID userId, int count) {
+        List<Integer> stripes = IntStream.range(0, count).boxed().toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO wallet_stripes (user_id, stripe, balance) VALUES (?, ?, 0) ON CONFLICT DO NOTHING",
+                stripes, stripes.size(),
+                (ps, stripe) -> {
+                    ps.setObject(1, userId);
+                    ps.setInt(2, stripe);
+                });
+    }
+
+    public void deleteStripes(UUID userId) {
+        jdbcTemplate.update("DELETE FROM wallet_stripes WHERE user_id = ?", userId);
+    }
+
+    public Map<UUID, Integer> countStripes(Collection<UUID> userIds) {
+        Map<UUID, Integer> counts = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, COUNT(*) AS stripes FROM wallet_stripes WHERE user_id = ANY(?) GROUP BY user_id");
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            counts.put(rs.getObject("user_id", UUID.class), rs.getInt("stripes"));
+        });
+        return counts;
+    }
+
+    public List<UUID> findStripedWallets() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM wallet_stripes", UUID.class);
+    }
+
+    public boolean credit(UUID userId, int stripe, Money amount) {
+        return jdbcTemplate.update("UPDATE wallet_stripes SET balance = balance + ? WHERE user_id = ? AND stripe = ?",
+                amount.toBigDecimal(), userId, stripe) == 1;
+    }
+
+    // Zeroes the stripes of wallets whose rows the caller already holds and returns the swept amount per wallet.
+    public Map<UUID, Money> sweep(Collection<UUID> userIds) {
+        Map<UUID, Money> swept = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return swept;
+        }
+        List<Object[]> nonEmpty = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, stripe, balance FROM wallet_stripes WHERE user_id = ANY(?) "
+                            + "ORDER BY user_id, stripe FOR UPDATE");
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            Money balance = Money.of(rs.getBigDecimal("balance"));
+            if (balance.signum() != 0) {
+                UUID userId = rs.getObject("user_id", UUID.class);
+                swept.merge(userId, balance, Money::plus);
+                nonEmpty.add(new Object[]{userId, rs.getInt("stripe")});
+            }
+        });
+        if (!nonEmpty.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE wallet_stripes SET balance = 0 WHERE user_id = ? AND stripe = ?", nonEmpty);
+        }
+        return swept;
+    }
+}
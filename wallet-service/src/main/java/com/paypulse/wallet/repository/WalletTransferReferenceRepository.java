@@ -0,0 +1,48 @@
+package com.paypulse.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+// References of applied transfers, scoped to the sending wallet: a client can only ever claim references of its own
+// transfers. Written in the transfer's own transaction, so a reference exists exactly when the transfer it names was
+// committed. Callers look it up only while holding the sender's wallet lock.
+@Repository
+@RequiredArgsConstructor
+public class WalletTransferReferenceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AppliedTransfer find(UUID fromUserId, String reference) {
+        return jdbcTemplate.query(
+                "SELECT to_user_id, amount FROM wallet_transfer_references WHERE from_user_id = ? AND reference = ?",
+                rs -> rs.next()
+                        ? new AppliedTransfer(fromUserId, rs.getObject("to_user_id", UUID.class), rs.getBigDecimal("amount"))
+                        : null,
+                fromUserId, reference);
+    }
+
+    // False when the sender already used the reference; never raises a key violation that would abort the transaction.
+    public boolean insert(String reference, UUID fromUserId, UUID toUserId, BigDecimal amount, Instant createdAt) {
+        return jdbcTemplate.update(
+                "INSERT INTO wallet_transfer_references (reference, from_user_id, to_user_id, amount, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (from_user_id, reference) DO NOTHING",
+                reference, fromUserId, toUserId, amount, Timestamp.from(createdAt)) > 0;
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM wallet_transfer_references WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+
+    public record AppliedTransfer(UUID fromUserId, UUID toUserId, BigDecimal amount) {
+
+        public boolean matches(UUID from, UUID to, BigDecimal value) {
+            return fromUserId.equals(from) && toUserId.equals(to) && amount.compareTo(value) == 0;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.paypulse.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypulse.common.BalanceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Two-level balance cache: a short-lived near cache in front of Redis. Writers never put balances into it; they
+// invalidate after commit, which also bumps a per-user generation in Redis. A reader that missed stores what it
+// loaded only if the generation is still the one it saw before loading, so a value read before a concurrent commit
+// cannot overwrite that commit's invalidation.
+@Slf4j
+@Service
+public class BalanceCacheService {
+
+    // Both keys of a user share a hash tag so the scripts stay on one cluster slot.
+    private static final String KEY_PREFIX = "wallet:balance:{";
+    private static final String GENERATION_PREFIX = "wallet:balance-gen:{";
+
+    private static final RedisScript<Long> STORE_IF_CURRENT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end "
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1", Long.class);
+
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) local generation = redis.call('INCR', KEYS[2]) "
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[1]) return generation", Long.class);
+
+    // Plain string values, so the scripts can compare and increment them.
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter staleReads;
+    private final Counter invalidations;
+    private final DistributionSummary entryAge;
+
+    @Value("${wallet.balance-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallet.balance-cache.local-size:100000}")
+    private long localSize;
+
+    @Value("${wallet.balance-cache.local-ttl-ms:2000}")
+    private long localTtlMs;
+
+    @Value("${wallet.balance-cache.redis-ttl-ms:300000}")
+    private long redisTtlMs;
+
+    @Value("${wallet.balance-cache.verify-sample-rate:0.01}")
+    private double verifySampleRate;
+
+    private Cache<UUID, CachedBalance> local;
+
+    public BalanceCacheService(StringRedisTemplate redisTemplate,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localHits = requests(meterRegistry, "local", "hit");
+        this.redisHits = requests(meterRegistry, "redis", "hit");
+        this.misses = requests(meterRegistry, "db", "miss");
+        this.staleReads = Counter.builder("wallet_balance_cache_stale_total")
+                .description("Sampled cache reads whose balance differed from the database")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("wallet_balance_cache_invalidations_total")
+                .description("Near-cache entries invalidated by balance change events")
+                .register(meterRegistry);
+        this.entryAge = DistributionSummary.builder("wallet_balance_cache_entry_age_ms")
+                .description("Age of cached balances served to readers")
+                .baseUnit("milliseconds")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String level, String result) {
+        return Counter.builder("wallet_balance_cache_requests_total")
+                .description("Balance cache lookups by level and result")
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(Duration.ofMillis(localTtlMs))
+                .build();
+    }
+
+    public BigDecimal get(UUID userId, Supplier<BigDecimal> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        CachedBalance cached = local.getIfPresent(userId);
+        if (cached != null) {
+            localHits.increment();
+            return served(userId, cached, loader);
+        }
+
+        cached = readRedis(userId);
+        if (cached != null) {
+            redisHits.increment();
+            local.put(userId, cached);
+            return served(userId, cached, loader);
+        }
+
+        misses.increment();
+        String generation = readGeneration(userId);
+        BigDecimal balance = loader.get();
+        if (generation != null) {
+            store(userId, balance, generation);
+        }
+        return balance;
+    }
+
+    // Drops the cached balance once the surrounding transaction commits.
+    public void evictOnCommit(UUID userId) {
+        evictOnCommit(List.of(userId));
+    }
+
+    public void evictOnCommit(Collection<UUID> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userIds);
+                }
+            });
+        } else {
+            evict(userIds);
+        }
+    }
+
+    // Every instance consumes balance events in its own group so peers' near caches drop their copies.
+    @KafkaListener(topics = "wallet.balance.changed",
+            groupId = "wallet-balance-cache-#{T(java.util.UUID).randomUUID()}",
+            properties = "auto.offset.reset=latest")
+    public void onBalanceChanged(String payload) {
+        try {
+            BalanceChangedEvent event = objectMapper.readValue(payload, BalanceChangedEvent.class);
+            if (local != null && local.getIfPresent(event.userId()) != null) {
+                local.invalidate(event.userId());
+                invalidations.increment();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply balance cache invalidation: payload={}", payload, e);
+        }
+    }
+
+    // One instance per event invalidates Redis again. The event is written in the same transaction as the change,
+    // so this also covers an after-commit invalidation that never ran or failed.
+    @KafkaListener(topics = "wallet.balance.changed", groupId = "wallet-balance-cache")
+    public void onBalanceChangedShared(String payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            invalidateRedis(objectMapper.readValue(payload, BalanceChangedEvent.class).userId());
+        } catch (Exception e) {
+            log.warn("Failed to invalidate cached balance: payload={}", payload, e);
+        }
+    }
+
+    private void evict(Collection<UUID> userIds) {
+        local.invalidateAll(userIds);
+        userIds.forEach(this::invalidateRedis);
+    }
+
+    private void invalidateRedis(UUID userId) {
+        try {
+            redisTemplate.execute(INVALIDATE, List.of(valueKey(userId), generationKey(userId)),
+                    String.valueOf(redisTtlMs * 2));
+        } catch (Exception e) {
+            log.warn("Failed to evict balance of user {} from Redis: {}", userId, e.getMessage());
+        }
+    }
+
+    private BigDecimal served(UUID userId, CachedBalance cached, Supplier<BigDecimal> loader) {
+        entryAge.record(System.currentTimeMillis() - cached.cachedAt());
+        if (verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate) {
+            BigDecimal actual = loader.get();
+            if (actual.compareTo(cached.balance()) != 0) {
+                staleReads.increment();
+                log.debug("Stale cached balance for user {}: cached {}, actual {}", userId, cached.balance(), actual);
+                evict(List.of(userId));
+                return actual;
+            }
+        }
+        return cached.balance();
+    }
+
+    // Null when Redis is unavailable; the loaded balance is then not cached at all.
+    private String readGeneration(UUID userId) {
+        try {
+            String generation = redisTemplate.opsForValue().get(generationKey(userId));
+            return generation != null ? generation : "";
+        } catch (Exception e) {
+            log.warn("Failed to read balance generation of user {} from Redis: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    // Skipped when the balance was invalidated after `generation` was read, since the loaded value may predate it.
+    private void store(UUID userId, BigDecimal balance, String generation) {
+        CachedBalance entry = new CachedBalance(balance, System.currentTimeMillis());
+        try {
+            Long stored = redisTemplate.execute(STORE_IF_CURRENT,
+                    List.of(valueKey(userId), generationKey(userId)),
+                    generation, balance.toPlainString() + ":" + entry.cachedAt(), String.valueOf(redisTtlMs));
+            if (stored != null && stored == 1) {
+                local.put(userId, entry);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to write balance of user {} to Redis: {}", userId, e.getMessage());
+        }
+    }
+
+    private CachedBalance readRedis(UUID userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(valueKey(userId));
+            if (value == null) {
+                return null;
+            }
+            int idx = value.indexOf(':');
+            return new CachedBalance(new BigDecimal(value.substring(0, idx)), Long.parseLong(value.substring(idx + 1)));
+        } catch (Exception e) {
+            log.warn("Failed to read balance of user {} from Redis: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String valueKey(UUID userId) {
+        return KEY_PREFIX + userId + "}";
+    }
+
+    private static String generationKey(UUID userId) {
+        return GENERATION_PREFIX + userId + "}";
+    }
+
+    private record CachedBalance(BigDecimal balance, long cachedAt) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.BalanceResponse;
+import com.paypulse.wallet.repository.HistoryMaintenanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceSnapshotService {
+
+    private static final String JOB = "balance-snapshots";
+
+    private final HistoryMaintenanceRepository maintenanceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${wallet.snapshots.interval-minutes:60}")
+    private long intervalMinutes;
+
+    // History timestamps are taken before commit, so windows are only closed once late commits can no longer land in them.
+    @Value("${wallet.snapshots.lag-seconds:300}")
+    private long lagSeconds;
+
+    @Value("${wallet.snapshots.max-windows-per-run:24}")
+    private int maxWindowsPerRun;
+
+    @Scheduled(fixedDelayString = "${wallet.snapshots.poll-interval-ms:60000}")
+    public void takeSnapshots() {
+        for (int i = 0; i < maxWindowsPerRun; i++) {
+            Boolean advanced = transactionTemplate.execute(status -> snapshotNextWindow());
+            if (!Boolean.TRUE.equals(advanced)) {
+                return;
+            }
+        }
+    }
+
+    private boolean snapshotNextWindow() {
+        Duration interval = Duration.ofMinutes(intervalMinutes);
+        Instant watermark = maintenanceRepository.lockWatermark(JOB);
+        if (watermark == null) {
+            Instant earliest = maintenanceRepository.findEarliestHistory();
+            if (earliest == null) {
+                return false;
+            }
+            watermark = alignDown(earliest, interval);
+        }
+
+        Instant windowEnd = watermark.plus(interval);
+        if (windowEnd.isAfter(Instant.now().minusSeconds(lagSeconds))) {
+            return false;
+        }
+        int written = maintenanceRepository.insertSnapshots(watermark, windowEnd);
+        maintenanceRepository.updateWatermark(JOB, windowEnd);
+        log.debug("Balance snapshots for window ({}, {}]: {} wallets", watermark, windowEnd, written);
+        return true;
+    }
+
+    public BalanceResponse getBalanceAsOf(Instant at) {
+        UUID userId = getCurrentUserId();
+        if (at.isAfter(Instant.now())) {
+            throw new IllegalArgumentException("Parameter 'at' must not be in the future");
+        }
+        HistoryMaintenanceRepository.Snapshot snapshot = maintenanceRepository.findSnapshotAtOrBefore(userId, at);
+        Instant from = snapshot != null ? snapshot.snapshotAt() : Instant.EPOCH;
+        BigDecimal base = snapshot != null ? snapshot.balance() : BigDecimal.ZERO;
+        BigDecimal balance = base.add(maintenanceRepository.sumHistory(userId, from, at));
+        log.debug("User {} balance as of {}: {} (snapshot at {})", userId, at, balance, from);
+        return new BalanceResponse(balance);
+    }
+
+    private Instant alignDown(Instant instant, Duration interval) {
+        long step = interval.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(instant.toEpochMilli(), step) * step);
+    }
+
+    private UUID getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            log.error("User not authenticated");
+            throw new IllegalStateException("User not authenticated");
+        }
+        return UUID.fromString(auth.getName());
+    }
+}
@@ -0,0 +1,406 @@
+package com.paypulse.wallet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.AuditService;
+import com.paypulse.common.BalanceChangedEvent;
+import com.paypulse.common.BulkFundingError;
+import com.paypulse.common.BulkFundingResponse;
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.OutboxEvent;
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.repository.BulkFundingJobRepository;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Spools a funding file to disk and streams it through fixed-size chunks on a worker thread; each chunk is one
+// transaction of set-based writes together with the job's progress row, so a job can be polled while it runs
+// and resumed after its lastCommittedLine even when the instance running it went away.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkFundingService {
+
+    private static final String OPERATION_TYPE = "ADMIN_DEPOSIT";
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final BulkFundingJobRepository jobRepository;
+    private final OutboxService outboxService;
+    private final AuditService auditService;
+    private final WalletLedgerService ledgerService;
+    private final WalletMetricsService metricsService;
+    private final BalanceCacheService balanceCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${wallet.bulk-funding.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${wallet.bulk-funding.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${wallet.bulk-funding.listed-jobs:20}")
+    private int listedJobs;
+
+    @Value("${wallet.bulk-funding.workers:2}")
+    private int workers;
+
+    @Value("${wallet.bulk-funding.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${wallet.bulk-funding.retention-days:90}")
+    private int retentionDays;
+
+    // Jobs of this instance that have not finished yet; everything else is read from wallet_funding_jobs.
+    private final Map<UUID, Job> activeJobs = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        public static Format of(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported funding format: " + value);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("bulk-funding-", 0).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Lines up to and including skipLines are ignored, so a failed job can be resumed after its lastCommittedLine.
+    // Returns as soon as the body is spooled; the job is then polled through getJob.
+    public BulkFundingResponse fund(InputStream body, Format format, String description, long skipLines) {
+        if (ledgerService.isEnabled()) {
+            throw ledgerService.unsupported("Bulk funding jobs");
+        }
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("Description is required");
+        }
+        if (skipLines < 0) {
+            throw new IllegalArgumentException("skipLines must not be negative");
+        }
+        String actor = SecurityContextHolder.getContext().getAuthentication().getName();
+        Path file = spool(body);
+        Job job = new Job(UUID.randomUUID(), Instant.now(), skipLines);
+        jobRepository.insert(job.toResponse(), actor);
+        activeJobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, file, format, description, skipLines, actor));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.id);
+            delete(file);
+            job.finish("FAILED", "Service is shutting down");
+            jobRepository.update(job.toResponse());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Service is shutting down");
+        }
+        log.info("Bulk funding job {} queued by {} ({}, skip {} lines)", job.id, actor, format, skipLines);
+        return job.toResponse();
+    }
+
+    public BulkFundingResponse getJob(UUID jobId) {
+        Job job = activeJobs.get(jobId);
+        if (job != null) {
+            return job.toResponse();
+        }
+        BulkFundingResponse stored = jobRepository.find(jobId);
+        if (stored == null) {
+            throw new IllegalArgumentException("Bulk funding job not found: " + jobId);
+        }
+        return stored;
+    }
+
+    public List<BulkFundingResponse> getJobs() {
+        return jobRepository.findRecent(listedJobs).stream()
+                .map(stored -> {
+                    Job job = activeJobs.get(stored.jobId());
+                    return job != null ? job.toResponse() : stored;
+                })
+                .toList();
+    }
+
+    // Keeps this instance's jobs alive and fails the jobs of instances that stopped while running them.
+    @Scheduled(fixedDelayString = "${wallet.bulk-funding.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        jobRepository.touch(activeJobs.keySet());
+        int interrupted = jobRepository.markInterrupted(Instant.now().minusMillis(staleAfterMs));
+        if (interrupted > 0) {
+            log.warn("Marked {} bulk funding jobs as interrupted; resume them after their lastCommittedLine", interrupted);
+        }
+    }
+
+    @Scheduled(cron = "${wallet.bulk-funding.cleanup-cron:0 45 2 * * ?}")
+    public void deleteExpired() {
+        Instant cutoff = Instant.now().minusSeconds(retentionDays * 86400L);
+        int deleted = jobRepository.deleteFinishedBefore(cutoff);
+        log.info("Cleaned up {} bulk funding jobs finished before {}", deleted, cutoff);
+    }
+
+    // The request body cannot outlive the request, so it is copied to a temporary file the worker reads from.
+    private Path spool(InputStream body) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("bulk-funding-", ".txt");
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            if (file != null) {
+                delete(file);
+            }
+            throw new UncheckedIOException("Failed to receive funding file", e);
+        }
+    }
+
+    private void run(Job job, Path file, Format format, String description, long skipLines, String actor) {
+        job.status = "RUNNING";
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            jobRepository.update(job.toResponse());
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= skipLines || line.isBlank() || isCsvHeader(format, lineNumber, line)) {
+                    continue;
+                }
+                job.rowsRead.incrementAndGet();
+                Row row = parse(format, line, lineNumber, description, job);
+                if (row == null) {
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    applyChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            applyChunk(job, chunk);
+            job.finish("COMPLETED", null);
+        } catch (IOException | RuntimeException e) {
+            log.error("Bulk funding job {} failed after line {}", job.id, job.lastCommittedLine.get(), e);
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            delete(file);
+        }
+
+        try {
+            jobRepository.update(job.toResponse());
+        } catch (RuntimeException e) {
+            // The heartbeat stops with the job, so the row ends up INTERRUPTED at the committed line.
+            log.error("Failed to record the end of bulk funding job {}", job.id, e);
+        } finally {
+            activeJobs.remove(job.id);
+        }
+        auditService.logAction(actor, "BULK_FUNDING", "job=" + job.id + ", status=" + job.status
+                + ", applied=" + job.rowsApplied.get() + ", total=" + Money.ofMinor(job.totalMinor.get(), Money.DEFAULT_CURRENCY).toBigDecimal());
+        log.info("Bulk funding job {} {}: {} read, {} applied, {} rejected in {} chunks",
+                job.id, job.status, job.rowsRead.get(), job.rowsApplied.get(), job.rowsRejected.get(), job.chunks.get());
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled funding file {}", file, e);
+        }
+    }
+
+    // Rows are pre-aggregated per wallet so each wallet row is updated once per chunk.
+    private void applyChunk(Job job, List<Row> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = metricsService.startTimer();
+        Map<UUID, Money> totals = new LinkedHashMap<>();
+        List<TransactionHistory> history = new ArrayList<>(chunk.size());
+        Instant now = Instant.now();
+        for (Row row : chunk) {
+            totals.merge(row.userId(), row.amount(), Money::plus);
+            history.add(TransactionHistory.builder()
+                    .id(UUID.randomUUID())
+                    .userId(row.userId())
+                    .amount(row.amount().toBigDecimal())
+                    .description(row.description())
+                    .timestamp(now)
+                    .build());
+        }
+        List<OutboxEvent> events = new ArrayList<>(totals.size());
+        totals.keySet().forEach(userId -> events.add(outboxService.buildBalanceEvent(userId.toString(),
+                new BalanceChangedEvent(userId, OPERATION_TYPE, chunk.get(0).description()))));
+
+        long chunkMinor = 0;
+        for (Money amount : totals.values()) {
+            chunkMinor += amount.minor();
+        }
+        BulkFundingResponse progress = job.toResponse(chunk.size(), chunkMinor, chunk.get(chunk.size() - 1).line());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            walletJdbcRepository.creditAll(totals);
+            walletJdbcRepository.copyHistory(history);
+            walletJdbcRepository.insertOutboxEvents(events);
+            jobRepository.update(progress);
+            balanceCache.evictOnCommit(totals.keySet());
+        });
+        metricsService.stopTimer(sample, "BULK_FUNDING", "sql");
+
+        job.totalMinor.addAndGet(chunkMinor);
+        job.rowsApplied.addAndGet(chunk.size());
+        job.chunks.incrementAndGet();
+        job.lastCommittedLine.set(progress.lastCommittedLine());
+        log.debug("Bulk funding job {} committed chunk of {} rows for {} wallets", job.id, chunk.size(), totals.size());
+    }
+
+    private Row parse(Format format, String line, long lineNumber, String defaultDescription, Job job) {
+        try {
+            String userId;
+            String amount;
+            String description = null;
+            if (format == Format.CSV) {
+                String[] fields = line.split(",", 3);
+                if (fields.length < 2) {
+                    throw new IllegalArgumentException("Expected user_id,amount[,description]");
+                }
+                userId = fields[0].trim();
+                amount = fields[1].trim();
+                if (fields.length == 3 && !fields[2].isBlank()) {
+                    description = unquote(fields[2].trim());
+                }
+            } else {
+                JsonNode node = objectMapper.readTree(line);
+                userId = node.path("userId").asText(null);
+                amount = node.path("amount").asText(null);
+                description = node.path("description").asText(null);
+            }
+            if (userId == null || amount == null) {
+                throw new IllegalArgumentException("userId and amount are required");
+            }
+            Money value = Money.of(new BigDecimal(amount));
+            if (value.signum() <= 0) {
+                throw new IllegalArgumentException("Amount must be positive");
+            }
+            if (description == null || description.isBlank()) {
+                description = defaultDescription;
+            }
+            if (description.length() > MAX_DESCRIPTION_LENGTH) {
+                throw new IllegalArgumentException("Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters");
+            }
+            return new Row(lineNumber, UUID.fromString(userId), value, description);
+        } catch (IOException | RuntimeException e) {
+            job.reject(lineNumber, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), maxReportedErrors);
+            return null;
+        }
+    }
+
+    private boolean isCsvHeader(Format format, long lineNumber, String line) {
+        return format == Format.CSV && lineNumber == 1
+                && line.trim().toLowerCase().startsWith("user_id");
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+    private record Row(long line, UUID userId, Money amount, String description) {
+    }
+
+    private static final class Job {
+
+        private final UUID id;
+        private final Instant startedAt;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsApplied = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong lastCommittedLine = new AtomicLong();
+        private final AtomicLong totalMinor = new AtomicLong();
+        private final List<BulkFundingError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String status = "QUEUED";
+        private volatile String failure;
+        private volatile Instant finishedAt;
+
+        // Until its first chunk commits, a resumed job is still committed up to the lines it skips.
+        private Job(UUID id, Instant startedAt, long skipLines) {
+            this.id = id;
+            this.startedAt = startedAt;
+            this.lastCommittedLine.set(skipLines);
+        }
+
+        private void reject(long line, String reason, int maxReportedErrors) {
+            rowsRejected.incrementAndGet();
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BulkFundingError(line, reason));
+            }
+        }
+
+        private void finish(String status, String failure) {
+            this.failure = failure;
+            this.finishedAt = Instant.now();
+            this.status = status;
+        }
+
+        private BulkFundingResponse toResponse() {
+            return toResponse(0, 0, lastCommittedLine.get());
+        }
+
+        // The job as it will be once a chunk of the given rows and amount, ending at the given line, commits.
+        private BulkFundingResponse toResponse(long chunkRows, long chunkMinor, long committedLine) {
+            List<BulkFundingError> reported;
+            synchronized (errors) {
+                reported = List.copyOf(errors);
+            }
+            return new BulkFundingResponse(id, status, rowsRead.get(), rowsApplied.get() + chunkRows,
+                    rowsRejected.get(), chunks.get() + (chunkRows > 0 ? 1 : 0), committedLine,
+                    Money.ofMinor(totalMinor.get() + chunkMinor, Money.DEFAULT_CURRENCY).toBigDecimal(),
+                    startedAt, finishedAt, failure, reported);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.paypulse.wallet.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.AuditService;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryExportService {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final AuditService auditService;
+
+    @Value("${wallet.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + value);
+        }
+    }
+
+    public StreamingResponseBody exportOwnHistory(Format format, Instant from, Instant to) {
+        return export(getCurrentUserId(), format, from, to);
+    }
+
+    // The body runs on an async thread, so everything taken from the request must be resolved before returning.
+    public StreamingResponseBody export(UUID userId, Format format, Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Parameter 'from' must be before 'to'");
+        }
+        String actor = SecurityContextHolder.getContext().getAuthentication().getName();
+        auditService.logAction(actor, "HISTORY_EXPORT",
+                "user=" + userId + ", format=" + format + ", from=" + from + ", to=" + to);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+            long[] rows = {0};
+            try {
+                rowWriter.begin();
+                readOnly.executeWithoutResult(status ->
+                        walletJdbcRepository.streamHistory(userId, from, to, fetchSize, rs -> {
+                            try {
+                                rowWriter.write(rs);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            rows[0]++;
+                        }));
+                rowWriter.end();
+            } catch (UncheckedIOException e) {
+                log.warn("History export for {} aborted after {} rows: {}", userId, rows[0], e.getCause().getMessage());
+                throw e.getCause();
+            }
+            log.info("Exported {} history rows as {} (user: {}, from: {}, to: {})", rows[0], format, userId, from, to);
+        };
+    }
+
+    private UUID getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            log.error("User not authenticated");
+            throw new IllegalStateException("User not authenticated");
+        }
+        return UUID.fromString(auth.getName());
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(ResultSet rs) throws IOException, SQLException;
+
+        void end() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            generator.writeStartObject();
+            generator.writeStringField("id", rs.getString("id"));
+            generator.writeStringField("userId", rs.getString("user_id"));
+            generator.writeNumberField("amount", rs.getBigDecimal("amount"));
+            generator.writeStringField("description", rs.getString("description"));
+            generator.writeStringField("timestamp", rs.getTimestamp("timestamp").toInstant().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.flush();
+            writer.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("id,user_id,amount,description,timestamp\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            writer.write(rs.getString("id"));
+            writer.write(',');
+            writer.write(rs.getString("user_id"));
+            writer.write(',');
+            writer.write(rs.getBigDecimal("amount").toPlainString());
+            writer.write(',');
+            writer.write(escape(rs.getString("description")));
+            writer.write(',');
+            writer.write(rs.getTimestamp("timestamp").toInstant().toString());
+            writer.write('\n');
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.flush();
+        }
+
+        // Text a spreadsheet would evaluate as a formula is prefixed with a quote so it stays text.
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
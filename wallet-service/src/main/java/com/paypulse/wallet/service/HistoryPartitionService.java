@@ -0,0 +1,43 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.wallet.repository.HistoryMaintenanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryPartitionService {
+
+    private final HistoryMaintenanceRepository maintenanceRepository;
+
+    @Value("${wallet.history.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${wallet.history.partitions.cron:0 30 1 * * ?}")
+    public void ensurePartitions() {
+        LocalDate month = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate monthStart = month.plusMonths(i);
+            try {
+                maintenanceRepository.createMonthlyPartition(monthStart);
+            } catch (RuntimeException e) {
+                log.error("Failed to create history partition {}", maintenanceRepository.partitionName(monthStart), e);
+            }
+        }
+        log.info("History partitions ensured through {}", month.plusMonths(monthsAhead));
+    }
+}
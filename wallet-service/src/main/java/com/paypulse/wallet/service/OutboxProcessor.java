@@ -32,7 +32,7 @@ public class OutboxProcessor {
     @Value("${outbox.cleanup.days:7}")
     private int cleanupDays;
 
-    @Scheduled(fixedRate = 5000)
+    @Scheduled(fixedRateString = "${outbox.polling-interval:5000}")
     public void processOutboxEvents() {
         List<OutboxEvent> pending = outboxRepository.findPendingEventsForProcessing(OutboxEvent.EventStatus.PENDING);
         if (pending.isEmpty()) {
@@ -66,7 +66,7 @@ public class OutboxProcessor {
     private void processEvent(OutboxEvent event) {
         event.setStatus(OutboxEvent.EventStatus.PROCESSING);
         outboxRepository.save(event);
-        kafkaTemplate.send(event.getEventType(), event.getEventData())
+        kafkaTemplate.send(event.getEventType(), event.getAggregateId(), event.getEventData())
                 .whenComplete((res, err) -> {
                     if (err != null) {
                         handleError(event, err);
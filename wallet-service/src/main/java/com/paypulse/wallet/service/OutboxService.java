@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -21,9 +22,15 @@ public class OutboxService {
 
     @Transactional
     public void saveEvent(String aggregateId, String aggregateType, String eventType, Object eventData) {
+        OutboxEvent event = buildEvent(aggregateId, aggregateType, eventType, eventData);
+        outboxRepository.save(event);
+        log.info("Saved outbox event: {} -> {} (aggregate: {})", eventType, event.getId(), aggregateId);
+    }
+
+    private OutboxEvent buildEvent(String aggregateId, String aggregateType, String eventType, Object eventData) {
         try {
             String json = objectMapper.writeValueAsString(eventData);
-            OutboxEvent event = OutboxEvent.builder()
+            return OutboxEvent.builder()
                     .aggregateId(aggregateId)
                     .aggregateType(aggregateType)
                     .eventType(eventType)
@@ -32,8 +39,6 @@ public class OutboxService {
                     .status(OutboxEvent.EventStatus.PENDING)
                     .retryCount(0)
                     .build();
-            outboxRepository.save(event);
-            log.info("Saved outbox event: {} -> {} (aggregate: {})", eventType, event.getId(), aggregateId);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize outbox event '{}' data", eventType, e);
             throw new RuntimeException("Failed to serialize event data", e);
@@ -44,4 +49,10 @@ public class OutboxService {
     public void saveBalanceEvent(String userId, Object eventData) {
         saveEvent(userId, "WALLET", "wallet.balance.changed", eventData);
     }
+
+    public OutboxEvent buildBalanceEvent(String userId, Object eventData) {
+        OutboxEvent event = buildEvent(userId, "WALLET", "wallet.balance.changed", eventData);
+        event.setId(UUID.randomUUID());
+        return event;
+    }
 }
\ No newline at end of file
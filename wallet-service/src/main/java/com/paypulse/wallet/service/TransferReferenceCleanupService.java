@@ -0,0 +1,29 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.wallet.repository.WalletTransferReferenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+// A reference only has to outlive the retries of its transfer; saga recovery gives up long before the retention ends.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferReferenceCleanupService {
+
+    private final WalletTransferReferenceRepository transferReferences;
+
+    @Value("${wallet.transfer-references.retention-days:30}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${wallet.transfer-references.cleanup-cron:0 15 2 * * ?}")
+    public void deleteExpired() {
+        Instant cutoff = Instant.now().minusSeconds(retentionDays * 86400L);
+        int deleted = transferReferences.deleteOlderThan(cutoff);
+        log.info("Cleaned up {} transfer references older than {}", deleted, cutoff);
+    }
+}
@@ -0,0 +1,206 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.AuditService;
+import com.paypulse.common.BalanceChangedEvent;
+import com.paypulse.common.Money;
+import com.paypulse.common.WalletBatchOperation;
+import com.paypulse.common.WalletBatchResponse;
+import com.paypulse.common.WalletBatchResult;
+import com.paypulse.wallet.entity.OutboxEvent;
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.entity.Wallet;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import com.paypulse.wallet.repository.WalletTransferReferenceRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletBatchService {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final OutboxService outboxService;
+    private final AuditService auditService;
+    private final WalletLedgerService ledgerService;
+    private final WalletMetricsService metricsService;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCacheService balanceCache;
+    private final WalletStripeService stripeService;
+    private final WalletProvisioningService provisioningService;
+    private final WalletTransferReferenceRepository transferReferences;
+
+    public WalletBatchResponse execute(List<WalletBatchOperation> operations) {
+        Timer.Sample sample = metricsService.startTimer();
+        List<WalletBatchResult> results;
+        if (ledgerService.isEnabled()) {
+            results = executeOnLedger(operations);
+            metricsService.stopTimer(sample, "BATCH", "ledger");
+        } else {
+            results = transactionTemplate.execute(status -> executeLocked(operations));
+            metricsService.stopTimer(sample, "BATCH", "lock");
+        }
+
+        int succeeded = (int) results.stream().filter(WalletBatchResult::success).count();
+        log.info("Wallet batch of {} operations processed: {} succeeded, {} failed",
+                operations.size(), succeeded, operations.size() - succeeded);
+        return new WalletBatchResponse(succeeded, operations.size() - succeeded, results);
+    }
+
+    private List<WalletBatchResult> executeLocked(List<WalletBatchOperation> operations) {
+        Set<UUID> userIds = new TreeSet<>();
+        operations.forEach(op -> {
+            userIds.add(op.userId());
+            if (isTransfer(op) && op.toUserId() != null) {
+                userIds.add(op.toUserId());
+            }
+        });
+
+        provisioningService.ensureExists(userIds);
+        Map<UUID, Wallet> wallets = walletJdbcRepository.lockWallets(userIds);
+
+        Map<UUID, Money> changed = new HashMap<>();
+        stripeService.sweepLocked(wallets).keySet()
+                .forEach(userId -> changed.put(userId, wallets.get(userId).getBalance()));
+        List<WalletBatchResult> results = new ArrayList<>(operations.size());
+        List<TransactionHistory> history = new ArrayList<>();
+        List<OutboxEvent> events = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (int i = 0; i < operations.size(); i++) {
+            WalletBatchOperation op = operations.get(i);
+            if (isTransfer(op) && (op.toUserId() == null || op.toUserId().equals(op.userId()))) {
+                results.add(new WalletBatchResult(i, op.userId(), false, null, "Invalid transfer recipient", false));
+                continue;
+            }
+            Wallet wallet = wallets.get(op.userId());
+            // Before the funds check: a transfer that already went through must not be reported as rejected.
+            if (isTransfer(op) && op.reference() != null) {
+                WalletTransferReferenceRepository.AppliedTransfer applied =
+                        transferReferences.find(op.userId(), op.reference());
+                if (applied != null) {
+                    results.add(applied.matches(op.userId(), op.toUserId(), op.amount())
+                            ? new WalletBatchResult(i, op.userId(), true, wallet.getBalance().toBigDecimal(), null, false)
+                            : new WalletBatchResult(i, op.userId(), false, null,
+                                    "Reference was already used for a different transfer", false));
+                    continue;
+                }
+            }
+            Money current = wallet.getBalance();
+            Money delta = signedAmount(op);
+            Money updated = current.plus(delta);
+            if (updated.isLessThan(wallet.getHeld())) {
+                log.warn("User {} insufficient funds: {} < {}", op.userId(), current, op.amount());
+                results.add(new WalletBatchResult(i, op.userId(), false, current.toBigDecimal(), "Insufficient funds", false));
+                continue;
+            }
+
+            if (isTransfer(op)) {
+                if (op.reference() != null
+                        && !transferReferences.insert(op.reference(), op.userId(), op.toUserId(), op.amount(), now)) {
+                    results.add(new WalletBatchResult(i, op.userId(), false, null,
+                            "Reference was already used for a different transfer", false));
+                    continue;
+                }
+                apply(wallet, delta, "TRANSFER_OUT", op.description(), now, changed, history, events);
+                apply(wallets.get(op.toUserId()), delta.negate(), "TRANSFER_IN", op.description(), now,
+                        changed, history, events);
+            } else {
+                apply(wallet, delta, op.type().name(), op.description(), now, changed, history, events);
+            }
+            results.add(new WalletBatchResult(i, op.userId(), true, updated.toBigDecimal(), null, false));
+        }
+
+        walletJdbcRepository.updateBalances(changed);
+        balanceCache.evictOnCommit(changed.keySet());
+        walletJdbcRepository.insertHistory(history);
+        walletJdbcRepository.insertOutboxEvents(events);
+        return results;
+    }
+
+    private void apply(Wallet wallet, Money delta, String operationType, String description, Instant now,
+                       Map<UUID, Money> changed, List<TransactionHistory> history, List<OutboxEvent> events) {
+        UUID userId = wallet.getUserId();
+        Money updated = wallet.getBalance().plus(delta);
+        wallet.setBalance(updated);
+        changed.put(userId, updated);
+        history.add(TransactionHistory.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .amount(delta.toBigDecimal())
+                .description(description)
+                .timestamp(now)
+                .build());
+        events.add(outboxService.buildBalanceEvent(userId.toString(),
+                new BalanceChangedEvent(userId, operationType, description)));
+        auditService.logAction(userId.toString(), operationType, delta.toBigDecimal() + " " + description);
+    }
+
+    private List<WalletBatchResult> executeOnLedger(List<WalletBatchOperation> operations) {
+        List<CompletableFuture<Money>> futures = new ArrayList<>(operations.size());
+        for (WalletBatchOperation op : operations) {
+            if (isTransfer(op)) {
+                futures.add(CompletableFuture.failedFuture(ledgerService.unsupported("Transfers")));
+                continue;
+            }
+            try {
+                futures.add(ledgerService.submit(op.userId(), signedAmount(op), op.description(), op.type().name())
+                        .orTimeout(ledgerService.getCommitTimeoutMs(), TimeUnit.MILLISECONDS));
+            } catch (IllegalStateException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<WalletBatchResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            UUID userId = operations.get(i).userId();
+            try {
+                Money balance = futures.get(i).join();
+                results.add(balance != null
+                        ? new WalletBatchResult(i, userId, true, balance.toBigDecimal(), null, false)
+                        : new WalletBatchResult(i, userId, false, null, "Insufficient funds", false));
+            } catch (CompletionException e) {
+                log.error("Ledger operation {} of batch failed for user {}", i, userId, e.getCause());
+                // A timed-out operation is still queued or in flight on its shard and may yet apply.
+                results.add(e.getCause() instanceof TimeoutException
+                        ? new WalletBatchResult(i, userId, false, null, "Ledger commit timed out, outcome unknown", true)
+                        : new WalletBatchResult(i, userId, false, null, failureReason(e.getCause()), false));
+            }
+        }
+        return results;
+    }
+
+    private static String failureReason(Throwable cause) {
+        if (cause instanceof ResponseStatusException rejected) {
+            return rejected.getReason();
+        }
+        return cause instanceof IllegalStateException ? cause.getMessage() : "Ledger commit failed";
+    }
+
+    // Negative for the wallet the operation debits: WITHDRAW and the sender of a TRANSFER.
+    private Money signedAmount(WalletBatchOperation op) {
+        Money amount = Money.of(op.amount());
+        return op.type() == WalletBatchOperation.Type.DEPOSIT ? amount : amount.negate();
+    }
+
+    private static boolean isTransfer(WalletBatchOperation op) {
+        return op.type() == WalletBatchOperation.Type.TRANSFER;
+    }
+}
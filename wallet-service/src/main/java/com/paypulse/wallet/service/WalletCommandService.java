@@ -0,0 +1,81 @@
+package com.paypulse.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paypulse.common.Money;
+import com.paypulse.common.WalletCommand;
+import com.paypulse.common.WalletCommandReply;
+import com.paypulse.wallet.repository.WalletCommandRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Kafka transport of the transfer saga: commands arrive keyed by wallet, so each partition applies
+// one wallet's commands in order. The balance change, the dedup row and the reply commit together.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletCommandService {
+
+    public static final String COMMANDS_TOPIC = "wallet.commands";
+    public static final String REPLIES_TOPIC = "wallet.command-replies";
+
+    private final WalletService walletService;
+    private final WalletLedgerService ledgerService;
+    private final WalletCommandRepository commandRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Failures propagate so the container redelivers the record; the dedup row rolls back with it.
+    @KafkaListener(topics = COMMANDS_TOPIC, groupId = "wallet-commands",
+            concurrency = "${wallet.commands.concurrency:4}")
+    public void onCommand(String payload) throws Exception {
+        WalletCommand command = objectMapper.readValue(payload, WalletCommand.class);
+        transactionTemplate.executeWithoutResult(status -> handle(command));
+    }
+
+    private void handle(WalletCommand command) {
+        WalletCommandReply reply;
+        if (commandRepository.claim(command)) {
+            reply = apply(command);
+            commandRepository.complete(reply);
+        } else {
+            reply = commandRepository.findReply(command);
+            if (reply == null) {
+                log.warn("Command {} was claimed but has no stored result", command.commandId());
+                return;
+            }
+            log.info("Duplicate command {} ({} of transaction {}), resending reply",
+                    command.commandId(), command.type(), command.transactionId());
+        }
+        outboxService.saveEvent(command.transactionId().toString(), "SAGA", REPLIES_TOPIC, reply);
+    }
+
+    private WalletCommandReply apply(WalletCommand command) {
+        if (ledgerService.isEnabled()) {
+            return reply(command, false, "Saga commands are not available in sharded ledger mode");
+        }
+        Money amount = Money.of(command.amount());
+        return switch (command.type()) {
+            case WalletCommand.RESERVE -> walletService.debit(command.userId(), amount, command.description(), "TRANSFER_OUT")
+                    ? reply(command, true, null)
+                    : reply(command, false, "Insufficient funds");
+            case WalletCommand.CREDIT -> {
+                walletService.credit(command.userId(), amount, command.description(), "TRANSFER_IN");
+                yield reply(command, true, null);
+            }
+            case WalletCommand.COMPENSATE -> {
+                walletService.credit(command.userId(), amount, command.description(), "REFUND");
+                yield reply(command, true, null);
+            }
+            default -> reply(command, false, "Unknown command type " + command.type());
+        };
+    }
+
+    private static WalletCommandReply reply(WalletCommand command, boolean success, String reason) {
+        return new WalletCommandReply(command.commandId(), command.transactionId(), command.type(),
+                command.userId(), success, reason);
+    }
+}
@@ -0,0 +1,212 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.AuditService;
+import com.paypulse.common.BalanceChangedEvent;
+import com.paypulse.common.FundsCaptureRequest;
+import com.paypulse.common.FundsHoldRequest;
+import com.paypulse.common.FundsHoldResponse;
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.entity.Wallet;
+import com.paypulse.wallet.entity.WalletHold;
+import com.paypulse.wallet.repository.HistoryRepository;
+import com.paypulse.wallet.repository.WalletHoldRepository;
+import com.paypulse.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletHoldService {
+
+    private final WalletHoldRepository holdRepository;
+    private final WalletRepository walletRepository;
+    private final HistoryRepository historyRepository;
+    private final OutboxService outboxService;
+    private final AuditService auditService;
+    private final WalletLedgerService ledgerService;
+    private final BalanceCacheService balanceCache;
+    private final WalletStripeService stripeService;
+    private final WalletProvisioningService provisioningService;
+
+    private UUID getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            log.error("User not authenticated");
+            throw new IllegalStateException("User not authenticated");
+        }
+        return UUID.fromString(auth.getName());
+    }
+
+    @Transactional
+    public FundsHoldResponse reserve(FundsHoldRequest request) {
+        requireLockEngine();
+        UUID userId = getCurrentUserId();
+        Money amount = Money.of(request.amount());
+        provisioningService.ensureExists(userId);
+        Wallet wallet = walletRepository.lockAllInOrder(List.of(userId)).get(0);
+
+        // Checked under the wallet lock, so a concurrent retry with the same reference waits for the first
+        // reserve and then finds its hold instead of inserting a duplicate.
+        if (request.reference() != null) {
+            WalletHold existing = holdRepository.findByReference(request.reference()).orElse(null);
+            if (existing != null) {
+                requireOwner(existing, userId);
+                log.info("Hold with reference {} already exists: {}", request.reference(), existing.getId());
+                return toResponse(existing);
+            }
+        }
+
+        stripeService.sweepLocked(Map.of(userId, wallet));
+        if (wallet.getAvailable().isLessThan(amount)) {
+            log.warn("User {} insufficient funds for hold: {} < {}", userId, wallet.getAvailable(), amount);
+            throw new IllegalArgumentException("Insufficient funds");
+        }
+        wallet.setHeld(wallet.getHeld().plus(amount));
+
+        WalletHold hold;
+        try {
+            hold = holdRepository.saveAndFlush(WalletHold.builder()
+                    .userId(userId)
+                    .amount(amount)
+                    .status(WalletHold.HoldStatus.ACTIVE)
+                    .reference(request.reference())
+                    .description(request.description())
+                    .createdAt(Instant.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Only another user's concurrent reserve can take the reference here; the wallet lock orders our own.
+            log.warn("User {} hold reference {} was taken concurrently", userId, request.reference());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Hold reference is already in use");
+        }
+
+        auditService.logAction(userId.toString(), "HOLD_RESERVE", request.amount() + " " + request.description());
+        log.info("User {} placed hold {} for {}. Held total: {}", userId, hold.getId(), request.amount(), wallet.getHeld());
+        return toResponse(hold);
+    }
+
+    @Transactional
+    public FundsHoldResponse capture(UUID holdId, FundsCaptureRequest request) {
+        requireLockEngine();
+        WalletHold hold = lockHold(holdId);
+        if (hold.getStatus() != WalletHold.HoldStatus.ACTIVE) {
+            log.info("Hold {} is already {}, capture skipped", holdId, hold.getStatus());
+            return toResponse(hold);
+        }
+
+        UUID payerId = hold.getUserId();
+        UUID payeeId = request != null ? request.toUserId() : null;
+        if (payerId.equals(payeeId)) {
+            throw new IllegalArgumentException("Invalid transfer recipient");
+        }
+        String description = request != null && request.description() != null
+                ? request.description()
+                : hold.getDescription();
+
+        if (payeeId != null) {
+            provisioningService.ensureExists(payeeId);
+        }
+        Map<UUID, Wallet> wallets = walletRepository
+                .lockAllInOrder(payeeId != null ? List.of(payerId, payeeId) : List.of(payerId))
+                .stream()
+                .collect(Collectors.toMap(Wallet::getUserId, Function.identity()));
+        stripeService.sweepLocked(wallets);
+
+        Wallet payer = wallets.get(payerId);
+        payer.setBalance(payer.getBalance().minus(hold.getAmount()));
+        payer.setHeld(payer.getHeld().minus(hold.getAmount()));
+        balanceCache.evictOnCommit(payerId);
+        recordMovement(payerId, hold.getAmount().negate(), description, "HOLD_CAPTURE");
+
+        if (payeeId != null) {
+            Wallet payee = wallets.get(payeeId);
+            payee.setBalance(payee.getBalance().plus(hold.getAmount()));
+            balanceCache.evictOnCommit(payeeId);
+            recordMovement(payeeId, hold.getAmount(), description, "TRANSFER_IN");
+        }
+
+        hold.setStatus(WalletHold.HoldStatus.CAPTURED);
+        hold.setCapturedTo(payeeId);
+        hold.setUpdatedAt(Instant.now());
+        log.info("Hold {} captured: {} from {} to {}", holdId, hold.getAmount(), payerId, payeeId);
+        return toResponse(hold);
+    }
+
+    @Transactional
+    public FundsHoldResponse release(UUID holdId) {
+        requireLockEngine();
+        WalletHold hold = lockHold(holdId);
+        if (hold.getStatus() != WalletHold.HoldStatus.ACTIVE) {
+            log.info("Hold {} is already {}, release skipped", holdId, hold.getStatus());
+            return toResponse(hold);
+        }
+
+        Wallet wallet = walletRepository.lockAllInOrder(List.of(hold.getUserId())).get(0);
+        wallet.setHeld(wallet.getHeld().minus(hold.getAmount()));
+
+        hold.setStatus(WalletHold.HoldStatus.RELEASED);
+        hold.setUpdatedAt(Instant.now());
+        auditService.logAction(hold.getUserId().toString(), "HOLD_RELEASE", hold.getAmount().toBigDecimal() + " " + hold.getDescription());
+        log.info("Hold {} released for user {}: {}", holdId, hold.getUserId(), hold.getAmount());
+        return toResponse(hold);
+    }
+
+    @Transactional(readOnly = true)
+    public FundsHoldResponse getHold(UUID holdId) {
+        WalletHold hold = holdRepository.findById(holdId)
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found: " + holdId));
+        requireOwner(hold, getCurrentUserId());
+        return toResponse(hold);
+    }
+
+    private WalletHold lockHold(UUID holdId) {
+        WalletHold hold = holdRepository.findByIdForUpdate(holdId)
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found: " + holdId));
+        requireOwner(hold, getCurrentUserId());
+        return hold;
+    }
+
+    private void requireOwner(WalletHold hold, UUID userId) {
+        if (!hold.getUserId().equals(userId)) {
+            log.warn("User {} attempted to access hold {} of user {}", userId, hold.getId(), hold.getUserId());
+            throw new IllegalArgumentException("Hold not found: " + hold.getId());
+        }
+    }
+
+    private void requireLockEngine() {
+        if (ledgerService.isEnabled()) {
+            throw ledgerService.unsupported("Funds holds");
+        }
+    }
+
+    private void recordMovement(UUID userId, Money amount, String description, String operationType) {
+        historyRepository.save(TransactionHistory.builder()
+                .userId(userId)
+                .amount(amount.toBigDecimal())
+                .description(description)
+                .timestamp(Instant.now())
+                .build());
+        outboxService.saveBalanceEvent(userId.toString(), new BalanceChangedEvent(userId, operationType, description));
+        auditService.logAction(userId.toString(), operationType, amount.toBigDecimal() + " " + description);
+    }
+
+    private FundsHoldResponse toResponse(WalletHold hold) {
+        return new FundsHoldResponse(hold.getId(), hold.getUserId(), hold.getAmount().toBigDecimal(),
+                hold.getStatus().name(), hold.getReference());
+    }
+}
@@ -0,0 +1,269 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.AuditService;
+import com.paypulse.common.BalanceChangedEvent;
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.OutboxEvent;
+import com.paypulse.wallet.entity.TransactionHistory;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletLedgerService {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final OutboxService outboxService;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletMetricsService metricsService;
+    private final BalanceCacheService balanceCache;
+
+    @Value("${wallet.ledger.mode:lock}")
+    private String mode;
+
+    @Value("${wallet.ledger.shards:8}")
+    private int shardCount;
+
+    @Value("${wallet.ledger.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${wallet.ledger.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${wallet.ledger.cache-size:100000}")
+    private int cacheSize;
+
+    @Value("${wallet.ledger.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+
+    private Shard[] shards;
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            metricsService.registerLedgerQueue(i, shards[i].queue);
+            shards[i].thread.start();
+        }
+        log.info("Wallet ledger started in sharded mode: {} shards, batch size {}", shardCount, maxBatchSize);
+        log.error("Sharded ledger mode only supports single-wallet deposits and withdrawals: transfers, holds, "
+                + "bulk funding, stripes and saga commands are rejected with 409. Run transaction-service with "
+                + "saga.wallet-mode=withdraw against this wallet-service; the default transfer mode and the hold and "
+                + "kafka modes fail every saga");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (shards == null) {
+            return;
+        }
+        for (Shard shard : shards) {
+            shard.running = false;
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(commitTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return "sharded".equalsIgnoreCase(mode);
+    }
+
+    // A definite rejection: retrying cannot help while the ledger engine is on, so callers such as the saga fail fast.
+    public ResponseStatusException unsupported(String feature) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, feature + " are not available in sharded ledger mode");
+    }
+
+    // A commit that outlives the timeout is still queued or in flight and may yet apply, so it answers 504 rather
+    // than a failure: the caller has to treat the outcome as unknown.
+    public boolean apply(UUID userId, Money amount, String description, String operationType) {
+        CompletableFuture<Money> result = submit(userId, amount, description, operationType);
+        try {
+            return result.get(commitTimeoutMs, TimeUnit.MILLISECONDS) != null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ledger commit", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ledger commit failed", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Ledger commit of {} for user {} did not complete within {} ms", operationType, userId, commitTimeoutMs);
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Ledger commit for user " + userId + " timed out, outcome unknown", e);
+        }
+    }
+
+    // Completes with the new balance once durable, or with null if a debit was rejected for insufficient funds.
+    public CompletableFuture<Money> submit(UUID userId, Money amount, String description, String operationType) {
+        LedgerOperation operation = new LedgerOperation(userId, amount, description, operationType,
+                new CompletableFuture<>());
+        Shard shard = shards[Math.floorMod(userId.hashCode(), shards.length)];
+        if (!shard.queue.offer(operation)) {
+            log.warn("Ledger shard {} is full, rejecting {} for user {}", shard.index, operationType, userId);
+            throw new IllegalStateException("Wallet ledger is overloaded, try again later");
+        }
+        return operation.result();
+    }
+
+    public long getCommitTimeoutMs() {
+        return commitTimeoutMs;
+    }
+
+    private record LedgerOperation(UUID userId,
+                                   Money amount,
+                                   String description,
+                                   String operationType,
+                                   CompletableFuture<Money> result) {
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<LedgerOperation> queue;
+        private final Map<UUID, Money> balances;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Shard(int index) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            int capacity = Math.max(1, cacheSize / shardCount);
+            this.balances = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Money> eldest) {
+                    return size() > capacity;
+                }
+            };
+            this.thread = new Thread(this, "wallet-ledger-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<LedgerOperation> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    LedgerOperation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("Ledger shard {} failed to process batch", index, e);
+                    batch.forEach(op -> op.result().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void commit(List<LedgerOperation> batch) {
+            Set<UUID> missing = new HashSet<>();
+            for (LedgerOperation op : batch) {
+                if (!balances.containsKey(op.userId())) {
+                    missing.add(op.userId());
+                }
+            }
+
+            Map<UUID, Money> loaded = new HashMap<>();
+            Map<UUID, Money> pending = new HashMap<>();
+            List<Money> outcomes = new ArrayList<>(batch.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!missing.isEmpty()) {
+                        walletJdbcRepository.provisionWallets(missing);
+                        loaded.putAll(walletJdbcRepository.findBalances(missing));
+                    }
+
+                    Instant now = Instant.now();
+                    List<TransactionHistory> history = new ArrayList<>();
+                    List<OutboxEvent> events = new ArrayList<>();
+                    for (LedgerOperation op : batch) {
+                        Money current = pending.containsKey(op.userId())
+                                ? pending.get(op.userId())
+                                : loaded.getOrDefault(op.userId(), balances.get(op.userId()));
+                        Money updated = current.plus(op.amount());
+                        if (updated.isNegative()) {
+                            log.warn("User {} insufficient funds: {} < {}", op.userId(), current, op.amount().negate());
+                            outcomes.add(null);
+                            continue;
+                        }
+                        pending.put(op.userId(), updated);
+                        history.add(TransactionHistory.builder()
+                                .id(UUID.randomUUID())
+                                .userId(op.userId())
+                                .amount(op.amount().toBigDecimal())
+                                .description(op.description())
+                                .timestamp(now)
+                                .build());
+                        events.add(outboxService.buildBalanceEvent(op.userId().toString(),
+                                new BalanceChangedEvent(op.userId(), op.operationType(), op.description())));
+                        outcomes.add(updated);
+                    }
+
+                    walletJdbcRepository.updateBalances(pending);
+                    walletJdbcRepository.insertHistory(history);
+                    walletJdbcRepository.insertOutboxEvents(events);
+                });
+            } catch (RuntimeException e) {
+                log.error("Ledger shard {} failed to commit {} operations", index, batch.size(), e);
+                missing.forEach(balances::remove);
+                pending.keySet().forEach(balances::remove);
+                batch.forEach(op -> op.result().completeExceptionally(e));
+                return;
+            }
+
+            balances.putAll(loaded);
+            balances.putAll(pending);
+            balanceCache.evictOnCommit(pending.keySet());
+            metricsService.recordLedgerBatch(batch.size());
+            log.debug("Ledger shard {} committed {} operations for {} wallets", index, batch.size(), pending.size());
+            for (int i = 0; i < batch.size(); i++) {
+                LedgerOperation op = batch.get(i);
+                if (outcomes.get(i) != null) {
+                    auditService.logAction(op.userId().toString(), op.operationType(), op.amount().toBigDecimal() + " " + op.description());
+                }
+                op.result().complete(outcomes.get(i));
+            }
+        }
+    }
+}
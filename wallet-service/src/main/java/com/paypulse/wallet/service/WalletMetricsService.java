@@ -0,0 +1,52 @@
+package com.paypulse.wallet.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class WalletMetricsService {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final DistributionSummary ledgerBatchSize;
+
+    public WalletMetricsService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.ledgerBatchSize = DistributionSummary.builder("wallet_ledger_batch_size")
+                .description("Number of operations group-committed by a ledger shard")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopTimer(Timer.Sample sample, String operation, String engine) {
+        sample.stop(operationTimers.computeIfAbsent(operation + ":" + engine,
+                key -> Timer.builder("wallet_operation_duration_seconds")
+                        .description("Wallet balance operation duration by engine")
+                        .tag("operation", operation)
+                        .tag("engine", engine)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+    }
+
+    public void recordLedgerBatch(int size) {
+        ledgerBatchSize.record(size);
+    }
+
+    public void registerLedgerQueue(int shard, BlockingQueue<?> queue) {
+        Gauge.builder("wallet_ledger_queue_depth", queue, BlockingQueue::size)
+                .description("Operations waiting in a ledger shard queue")
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.paypulse.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletProvisioningService {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+
+    @Value("${wallet.provisioning.known-wallets-size:200000}")
+    private long knownWalletsSize;
+
+    private Cache<UUID, Boolean> knownWallets;
+
+    @PostConstruct
+    public void init() {
+        knownWallets = Caffeine.newBuilder()
+                .maximumSize(knownWalletsSize)
+                .build();
+    }
+
+    public void ensureExists(UUID userId) {
+        ensureExists(List.of(userId));
+    }
+
+    // Wallets are only remembered once the inserting transaction commits, so a rollback cannot poison the set.
+    public void ensureExists(Collection<UUID> userIds) {
+        List<UUID> unknown = userIds.stream()
+                .filter(userId -> knownWallets.getIfPresent(userId) == null)
+                .toList();
+        if (unknown.isEmpty()) {
+            return;
+        }
+        walletJdbcRepository.provisionWallets(unknown);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unknown.forEach(userId -> knownWallets.put(userId, Boolean.TRUE));
+                }
+            });
+        } else {
+            unknown.forEach(userId -> knownWallets.put(userId, Boolean.TRUE));
+        }
+        log.debug("Provisioned {} wallets", unknown.size());
+    }
+}
@@ -0,0 +1,159 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.StatementLine;
+import com.paypulse.common.StatementResponse;
+import com.paypulse.wallet.repository.HistoryMaintenanceRepository;
+import com.paypulse.wallet.repository.WalletRollupRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletRollupService {
+
+    private static final String JOB = "daily-rollups";
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final WalletRollupRepository rollupRepository;
+    private final HistoryMaintenanceRepository maintenanceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${wallet.rollups.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${wallet.rollups.lag-seconds:300}")
+    private long lagSeconds;
+
+    @Value("${wallet.rollups.max-windows-per-run:24}")
+    private int maxWindowsPerRun;
+
+    // History timestamps are written as wall-clock time of the JVM zone and days are cut with CAST(timestamp AS date),
+    // so windows are aligned to midnight of that zone rather than to the epoch.
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @PostConstruct
+    public void init() {
+        if (windowMinutes <= 0 || MINUTES_PER_DAY % windowMinutes != 0) {
+            throw new IllegalStateException("wallet.rollups.window-minutes must divide a day, got " + windowMinutes);
+        }
+        log.info("Daily rollups fold {}-minute windows aligned to midnight in {}", windowMinutes, zone);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.rollups.poll-interval-ms:60000}")
+    public void foldHistory() {
+        for (int i = 0; i < maxWindowsPerRun; i++) {
+            Boolean advanced = transactionTemplate.execute(status -> foldNextWindow());
+            if (!Boolean.TRUE.equals(advanced)) {
+                return;
+            }
+        }
+    }
+
+    private boolean foldNextWindow() {
+        Instant watermark = maintenanceRepository.lockWatermark(JOB);
+        LocalDateTime windowStart;
+        if (watermark == null) {
+            Instant earliest = maintenanceRepository.findEarliestHistory();
+            if (earliest == null) {
+                return false;
+            }
+            LocalDateTime first = LocalDateTime.ofInstant(earliest, zone);
+            windowStart = first.toLocalDate().atStartOfDay()
+                    .plusMinutes(minuteOfDay(first) / windowMinutes * windowMinutes);
+        } else {
+            windowStart = LocalDateTime.ofInstant(watermark, zone);
+        }
+
+        // The next boundary after the start, which also shortens the first window after a watermark left
+        // unaligned by an earlier window size or zone, and never passes the next midnight.
+        LocalDateTime windowEnd = windowStart.toLocalDate().atStartOfDay()
+                .plusMinutes((minuteOfDay(windowStart) / windowMinutes + 1) * windowMinutes);
+        Instant from = windowStart.atZone(zone).toInstant();
+        Instant to = windowEnd.atZone(zone).toInstant();
+        if (to.isAfter(Instant.now().minusSeconds(lagSeconds))) {
+            return false;
+        }
+        int rows = rollupRepository.fold(from, to);
+        maintenanceRepository.updateWatermark(JOB, to);
+        log.debug("Daily rollups folded for window [{}, {}): {} user-days", windowStart, windowEnd, rows);
+        return true;
+    }
+
+    private static long minuteOfDay(LocalDateTime time) {
+        return ChronoUnit.MINUTES.between(time.toLocalDate().atStartOfDay(), time);
+    }
+
+    public StatementResponse getMonthlyStatement(int year, int month) {
+        return getMonthlyStatement(getCurrentUserId(), year, month);
+    }
+
+    public StatementResponse getYearlyStatement(int year) {
+        return getYearlyStatement(getCurrentUserId(), year);
+    }
+
+    // One line per active day of the month.
+    public StatementResponse getMonthlyStatement(UUID userId, int year, int month) {
+        validateYear(year);
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Month must be between 1 and 12");
+        }
+        LocalDate from = LocalDate.of(year, month, 1);
+        LocalDate to = from.plusMonths(1);
+        return toStatement(userId, from, to, rollupRepository.findDaily(userId, from, to));
+    }
+
+    // One line per active month of the year.
+    public StatementResponse getYearlyStatement(UUID userId, int year) {
+        validateYear(year);
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = from.plusYears(1);
+        return toStatement(userId, from, to, rollupRepository.findMonthly(userId, from, to));
+    }
+
+    private StatementResponse toStatement(UUID userId, LocalDate from, LocalDate to, List<StatementLine> lines) {
+        BigDecimal opening = rollupRepository.findClosingBalanceBefore(userId, from);
+        BigDecimal credits = BigDecimal.ZERO;
+        BigDecimal debits = BigDecimal.ZERO;
+        long count = 0;
+        for (StatementLine line : lines) {
+            credits = credits.add(line.credits());
+            debits = debits.add(line.debits());
+            count += line.transactionCount();
+        }
+        BigDecimal closing = lines.isEmpty() ? opening : lines.get(lines.size() - 1).closingBalance();
+        log.debug("Statement for user {} from {} to {}: {} lines", userId, from, to, lines.size());
+        return new StatementResponse(userId, from, to.minusDays(1), opening, closing, credits, debits, count, lines);
+    }
+
+    private void validateYear(int year) {
+        if (year < 2000 || year > 9999) {
+            throw new IllegalArgumentException("Year must be between 2000 and 9999");
+        }
+    }
+
+    private UUID getCurrentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            log.error("User not authenticated");
+            throw new IllegalStateException("User not authenticated");
+        }
+        return UUID.fromString(auth.getName());
+    }
+}
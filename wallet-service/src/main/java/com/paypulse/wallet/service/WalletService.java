@@ -1,24 +1,36 @@
 package com.paypulse.wallet.service;
 
 import com.paypulse.common.*;
+import com.paypulse.wallet.archive.HistoryArchiveService;
 import com.paypulse.wallet.entity.TransactionHistory;
 import com.paypulse.wallet.entity.Wallet;
 import com.paypulse.wallet.repository.HistoryRepository;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
 import com.paypulse.wallet.repository.WalletRepository;
+import com.paypulse.wallet.repository.WalletTransferReferenceRepository;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 @Slf4j
@@ -26,14 +38,32 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class WalletService {
 
+    private static final String ENGINE_LOCK = "lock";
+    private static final String ENGINE_LEDGER = "ledger";
+    private static final String ENGINE_STRIPE = "stripe";
+    private static final String ENGINE_SQL = "sql";
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+
     private final WalletRepository walletRepository;
+    private final WalletJdbcRepository walletJdbcRepository;
     private final HistoryRepository historyRepository;
     private final OutboxService outboxService;
     private final AuditService auditService;
+    private final WalletLedgerService ledgerService;
+    private final WalletMetricsService metricsService;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCacheService balanceCache;
+    private final WalletStripeService stripeService;
+    private final WalletProvisioningService provisioningService;
+    private final HistoryArchiveService archiveService;
+    private final WalletTransferReferenceRepository transferReferences;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${wallet.update-mode:jpa}")
+    private String updateMode;
+
     private UUID getCurrentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName() == null) {
@@ -43,20 +73,10 @@ public class WalletService {
         return UUID.fromString(auth.getName());
     }
 
-    private void ensureWalletExists(UUID userId) {
-        if (!walletRepository.existsById(userId)) {
-            walletRepository.save(Wallet.builder()
-                    .userId(userId)
-                    .balance(BigDecimal.ZERO)
-                    .build());
-            entityManager.flush();
-        }
-    }
-
-    private void saveTransactionHistory(UUID userId, BigDecimal amount, String description) {
+    private void saveTransactionHistory(UUID userId, Money amount, String description) {
         historyRepository.save(TransactionHistory.builder()
                 .userId(userId)
-                .amount(amount)
+                .amount(amount.toBigDecimal())
                 .description(description)
                 .timestamp(Instant.now())
                 .build());
@@ -68,54 +88,200 @@ public class WalletService {
     }
 
     private void updateWalletBalance(UUID userId,
-                                     BigDecimal amount,
+                                     Money amount,
                                      String description,
                                      String operationType) {
 
         Wallet wallet = entityManager.find(Wallet.class, userId, LockModeType.PESSIMISTIC_WRITE);
-        wallet.setBalance(wallet.getBalance().add(amount));
+        wallet.setBalance(wallet.getBalance().plus(amount));
         walletRepository.save(wallet);
+        balanceCache.evictOnCommit(userId);
 
         saveTransactionHistory(userId, amount, description);
-        auditService.logAction(userId.toString(), operationType, amount + " " + description);
+        auditService.logAction(userId.toString(), operationType, amount.toBigDecimal() + " " + description);
         log.info("User {} {} {}. New balance: {}", userId, operationType.toLowerCase(), amount, wallet.getBalance());
 
         publishBalanceEvent(userId, operationType, description);
     }
 
-    @Transactional
+    private boolean isSqlMode() {
+        return "sql".equalsIgnoreCase(updateMode);
+    }
+
+    // Single-statement path: the balance was already changed by one conditional UPDATE or upsert.
+    private void recordSqlMovement(UUID userId, Money amount, Money balance,
+                                   String description, String operationType) {
+        balanceCache.evictOnCommit(userId);
+        walletJdbcRepository.insertHistory(List.of(historyRow(userId, amount, description, Instant.now())));
+        walletJdbcRepository.insertOutboxEvents(List.of(outboxService.buildBalanceEvent(userId.toString(),
+                new BalanceChangedEvent(userId, operationType, description))));
+        auditService.logAction(userId.toString(), operationType, amount.toBigDecimal() + " " + description);
+        log.info("User {} {} {}. New balance: {}", userId, operationType.toLowerCase(), amount, balance);
+    }
+
     public BalanceResponse getBalance() {
         UUID userId = getCurrentUserId();
-        Wallet wallet = walletRepository.findById(userId)
-                .orElseGet(() -> walletRepository.save(Wallet.builder()
-                        .userId(userId)
-                        .balance(BigDecimal.ZERO)
-                        .build()));
-        auditService.logAction(userId.toString(), "getBalance", "balance=" + wallet.getBalance());
-        log.info("User {} balance: {}", userId, wallet.getBalance());
-        return new BalanceResponse(wallet.getBalance());
+        BigDecimal balance = balanceCache.get(userId, () -> walletJdbcRepository.findTotalBalances(List.of(userId))
+                .getOrDefault(userId, BigDecimal.ZERO));
+        log.debug("User {} balance: {}", userId, balance);
+        return new BalanceResponse(balance);
     }
 
-    @Transactional
     public void deposit(DepositRequest request) {
         UUID userId = getCurrentUserId();
-        ensureWalletExists(userId);
-        updateWalletBalance(userId, request.amount(), request.description(), "DEPOSIT");
+        credit(userId, Money.of(request.amount()), request.description(), "DEPOSIT");
     }
 
-    @Transactional
     public boolean withdraw(WithdrawRequest request) {
+        return debit(getCurrentUserId(), Money.of(request.amount()), request.description(), "WITHDRAW");
+    }
+
+    // Joins the caller's transaction when there is one, except on the ledger engine which commits per shard.
+    public boolean debit(UUID userId, Money amount, String description, String operationType) {
+        Timer.Sample sample = metricsService.startTimer();
+        if (ledgerService.isEnabled()) {
+            boolean applied = ledgerService.apply(userId, amount.negate(), description, operationType);
+            metricsService.stopTimer(sample, operationType, ENGINE_LEDGER);
+            return applied;
+        }
+
+        if (isSqlMode() && !stripeService.isStriped(userId)) {
+            Boolean applied = transactionTemplate.execute(status -> {
+                Money balance = walletJdbcRepository.debitIfAvailable(userId, amount);
+                if (balance == null) {
+                    log.warn("User {} insufficient funds for {}", userId, amount);
+                    return false;
+                }
+                recordSqlMovement(userId, amount.negate(), balance, description, operationType);
+                return true;
+            });
+            metricsService.stopTimer(sample, operationType, ENGINE_SQL);
+            return Boolean.TRUE.equals(applied);
+        }
+
+        Boolean applied = transactionTemplate.execute(status -> {
+            provisioningService.ensureExists(userId);
+
+            Wallet wallet = entityManager.find(Wallet.class, userId, LockModeType.PESSIMISTIC_WRITE);
+            stripeService.sweepLocked(Map.of(userId, wallet));
+            if (wallet.getAvailable().isLessThan(amount)) {
+                log.warn("User {} insufficient funds: {} < {}", userId, wallet.getAvailable(), amount);
+                return false;
+            }
+
+            updateWalletBalance(userId, amount.negate(), description, operationType);
+            return true;
+        });
+        metricsService.stopTimer(sample, operationType, ENGINE_LOCK);
+        return Boolean.TRUE.equals(applied);
+    }
+
+    public void transfer(WalletTransferRequest request) {
         UUID userId = getCurrentUserId();
-        ensureWalletExists(userId);
+        if (!userId.equals(request.fromUserId())) {
+            log.warn("User {} attempted to transfer from wallet of user {}", userId, request.fromUserId());
+            throw new IllegalArgumentException("Transfer must originate from the current user's wallet");
+        }
+        if (request.fromUserId().equals(request.toUserId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same wallet");
+        }
+        if (ledgerService.isEnabled()) {
+            throw ledgerService.unsupported("Internal transfers");
+        }
 
-        Wallet wallet = entityManager.find(Wallet.class, userId, LockModeType.PESSIMISTIC_WRITE);
-        if (wallet.getBalance().compareTo(request.amount()) < 0) {
-            log.warn("User {} insufficient funds: {} < {}", userId, wallet.getBalance(), request.amount());
-            return false;
+        Money amount = Money.of(request.amount());
+        Timer.Sample sample = metricsService.startTimer();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<UUID> userIds = new TreeSet<>(List.of(request.fromUserId(), request.toUserId()));
+            provisioningService.ensureExists(userIds);
+            Map<UUID, Wallet> wallets = walletJdbcRepository.lockWallets(userIds);
+            stripeService.sweepLocked(wallets);
+
+            // Checked under the sender's lock, so a retry waits for the first attempt and then sees its reference.
+            if (request.reference() != null) {
+                WalletTransferReferenceRepository.AppliedTransfer applied =
+                        transferReferences.find(request.fromUserId(), request.reference());
+                if (applied != null) {
+                    if (!applied.matches(request.fromUserId(), request.toUserId(), request.amount())) {
+                        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                                "Reference " + request.reference() + " was already used for a different transfer");
+                    }
+                    log.info("Transfer {} was already applied, skipping", request.reference());
+                    return;
+                }
+            }
+
+            Wallet from = wallets.get(request.fromUserId());
+            Wallet to = wallets.get(request.toUserId());
+            if (from.getAvailable().isLessThan(amount)) {
+                log.warn("User {} insufficient funds: {} < {}", from.getUserId(), from.getAvailable(), amount);
+                throw new IllegalArgumentException("Insufficient funds");
+            }
+            Money fromBalance = from.getBalance().minus(amount);
+            Money toBalance = to.getBalance().plus(amount);
+
+            Instant now = Instant.now();
+            if (request.reference() != null && !transferReferences.insert(request.reference(),
+                    from.getUserId(), to.getUserId(), request.amount(), now)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Reference " + request.reference() + " was already used for a different transfer");
+            }
+            Map<UUID, Money> balances = Map.of(from.getUserId(), fromBalance, to.getUserId(), toBalance);
+            walletJdbcRepository.updateBalances(balances);
+            balanceCache.evictOnCommit(balances.keySet());
+            walletJdbcRepository.insertHistory(List.of(
+                    historyRow(from.getUserId(), amount.negate(), request.description(), now),
+                    historyRow(to.getUserId(), amount, request.description(), now)));
+            walletJdbcRepository.insertOutboxEvents(List.of(
+                    outboxService.buildBalanceEvent(from.getUserId().toString(),
+                            new BalanceChangedEvent(from.getUserId(), "TRANSFER_OUT", request.description())),
+                    outboxService.buildBalanceEvent(to.getUserId().toString(),
+                            new BalanceChangedEvent(to.getUserId(), "TRANSFER_IN", request.description()))));
+
+            auditService.logAction(from.getUserId().toString(), "TRANSFER_OUT", request.amount() + " " + request.description());
+            auditService.logAction(to.getUserId().toString(), "TRANSFER_IN", request.amount() + " " + request.description());
+            log.info("Transferred {} from {} to {}. New balances: {} / {}",
+                    request.amount(), from.getUserId(), to.getUserId(), fromBalance, toBalance);
+        });
+        metricsService.stopTimer(sample, "TRANSFER", ENGINE_LOCK);
+    }
+
+    private TransactionHistory historyRow(UUID userId, Money amount, String description, Instant timestamp) {
+        return TransactionHistory.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .amount(amount.toBigDecimal())
+                .description(description)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    public void credit(UUID userId, Money amount, String description, String operationType) {
+        Timer.Sample sample = metricsService.startTimer();
+        if (ledgerService.isEnabled()) {
+            ledgerService.apply(userId, amount, description, operationType);
+            metricsService.stopTimer(sample, operationType, ENGINE_LEDGER);
+            return;
         }
 
-        updateWalletBalance(userId, request.amount().negate(), request.description(), "WITHDRAW");
-        return true;
+        String engine = transactionTemplate.execute(status -> {
+            if (stripeService.tryCredit(userId, amount)) {
+                saveTransactionHistory(userId, amount, description);
+                auditService.logAction(userId.toString(), operationType, amount.toBigDecimal() + " " + description);
+                log.info("User {} {} {} on a balance stripe", userId, operationType.toLowerCase(), amount);
+                publishBalanceEvent(userId, operationType, description);
+                return ENGINE_STRIPE;
+            }
+            if (isSqlMode()) {
+                Money balance = walletJdbcRepository.creditUpsert(userId, amount);
+                recordSqlMovement(userId, amount, balance, description, operationType);
+                return ENGINE_SQL;
+            }
+            provisioningService.ensureExists(userId);
+            updateWalletBalance(userId, amount, description, operationType);
+            return ENGINE_LOCK;
+        });
+        metricsService.stopTimer(sample, operationType, engine);
     }
 
     public Page<HistoryResponse> getHistory(int page, int size, String sortBy, String sortDir) {
@@ -161,6 +327,64 @@ public class WalletService {
                 ));
     }
 
+    public CursorPage<HistoryResponse> getHistoryByCursor(String cursor, int size) {
+        validateCursorPageSize(size);
+        UUID userId = getCurrentUserId();
+        Cursor position = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        Instant horizon = archiveService.getHotHorizon();
+        List<TransactionHistory> rows = new ArrayList<>();
+        if (position == null) {
+            rows.addAll(historyRepository.findLatestByUserId(userId, size + 1));
+        } else if (horizon == null || !position.timestamp().isBefore(horizon)) {
+            rows.addAll(historyRepository.findByUserIdBefore(userId, position.timestamp(), position.id(), size + 1));
+        }
+        // Archived months only hold rows older than every hot row, so the page simply continues into them.
+        if (horizon != null && rows.size() <= size) {
+            TransactionHistory last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            Instant from = last != null ? last.getTimestamp() : position != null ? position.timestamp() : null;
+            UUID fromId = last != null ? last.getId() : position != null ? position.id() : null;
+            rows.addAll(archiveService.findBefore(userId, from, fromId, size + 1 - rows.size()));
+        }
+        return toCursorPage(rows, size);
+    }
+
+    public CursorPage<HistoryResponse> getAllHistoryByCursor(String cursor, int size) {
+        validateCursorPageSize(size);
+        List<TransactionHistory> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = historyRepository.findLatest(size + 1);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            rows = historyRepository.findBefore(position.timestamp(), position.id(), size + 1);
+        }
+        return toCursorPage(rows, size);
+    }
+
+    // One extra row is fetched to learn whether a next page exists without counting.
+    private CursorPage<HistoryResponse> toCursorPage(List<TransactionHistory> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<TransactionHistory> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionHistory last = page.get(page.size() - 1);
+            nextCursor = new Cursor(last.getTimestamp(), last.getId()).encode();
+        }
+        return new CursorPage<>(page.stream()
+                .map(tx -> new HistoryResponse(
+                        tx.getId(),
+                        tx.getAmount(),
+                        tx.getDescription(),
+                        tx.getTimestamp()
+                ))
+                .toList(), nextCursor);
+    }
+
+    private void validateCursorPageSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
+
     private boolean isValidSortField(String sortBy) {
         return sortBy != null && switch (sortBy) {
             case "timestamp", "amount", "description" -> true;
@@ -172,10 +396,8 @@ public class WalletService {
         return sortDir != null && ("asc".equalsIgnoreCase(sortDir) || "desc".equalsIgnoreCase(sortDir));
     }
 
-    @Transactional
     public void adminDeposit(String userIdStr, DepositRequest request) {
         UUID userId = UUID.fromString(userIdStr);
-        ensureWalletExists(userId);
-        updateWalletBalance(userId, request.amount(), request.description(), "ADMIN_DEPOSIT");
+        credit(userId, Money.of(request.amount()), request.description(), "ADMIN_DEPOSIT");
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.paypulse.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.paypulse.common.AuditService;
+import com.paypulse.common.Money;
+import com.paypulse.wallet.entity.Wallet;
+import com.paypulse.wallet.repository.WalletJdbcRepository;
+import com.paypulse.wallet.repository.WalletStripeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletStripeService {
+
+    private final WalletStripeRepository stripeRepository;
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final WalletLedgerService ledgerService;
+    private final BalanceCacheService balanceCache;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${wallet.stripes.max-stripes:64}")
+    private int maxStripes;
+
+    @Value("${wallet.stripes.flag-ttl-ms:10000}")
+    private long flagTtlMs;
+
+    private Cache<UUID, Integer> stripeCounts;
+
+    @PostConstruct
+    public void init() {
+        stripeCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(flagTtlMs))
+                .build();
+    }
+
+    public void enable(UUID userId, int stripes) {
+        if (ledgerService.isEnabled()) {
+            throw ledgerService.unsupported("Striped wallets");
+        }
+        if (stripes < 2 || stripes > maxStripes) {
+            throw new IllegalArgumentException("Stripe count must be between 2 and " + maxStripes);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            walletJdbcRepository.provisionWallets(List.of(userId));
+            walletJdbcRepository.lockWallets(List.of(userId));
+            stripeRepository.createStripes(userId, stripes);
+        });
+        stripeCounts.invalidate(userId);
+        auditService.logAction(userId.toString(), "STRIPES_ENABLED", "stripes=" + stripes);
+        log.info("Wallet {} is now striped across {} sub-rows", userId, stripes);
+    }
+
+    public void disable(UUID userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<UUID, Wallet> locked = walletJdbcRepository.lockWallets(List.of(userId));
+            if (locked.isEmpty()) {
+                return;
+            }
+            applySweep(locked, List.of(userId));
+            walletJdbcRepository.updateBalances(Map.of(userId, locked.get(userId).getBalance()));
+            stripeRepository.deleteStripes(userId);
+        });
+        stripeCounts.invalidate(userId);
+        auditService.logAction(userId.toString(), "STRIPES_DISABLED", "");
+        log.info("Wallet {} is no longer striped", userId);
+    }
+
+    // Lands a credit on a random stripe without touching the wallet row; false means the caller must credit the row.
+    public boolean tryCredit(UUID userId, Money amount) {
+        if (ledgerService.isEnabled()) {
+            return false;
+        }
+        int stripes = stripeCount(userId);
+        if (stripes == 0) {
+            return false;
+        }
+        if (!stripeRepository.credit(userId, ThreadLocalRandom.current().nextInt(stripes), amount)) {
+            stripeCounts.invalidate(userId);
+            return false;
+        }
+        balanceCache.evictOnCommit(userId);
+        return true;
+    }
+
+    // Folds stripes into wallets whose rows the current transaction already holds, updating the given objects in place.
+    // The caller must persist the new balances of every wallet present in the result.
+    public Map<UUID, Money> sweepLocked(Map<UUID, Wallet> locked) {
+        if (ledgerService.isEnabled()) {
+            return Map.of();
+        }
+        Map<UUID, Integer> counts = stripeCounts(locked.keySet());
+        List<UUID> striped = locked.keySet().stream()
+                .filter(userId -> counts.getOrDefault(userId, 0) > 0)
+                .toList();
+        return striped.isEmpty() ? Map.of() : applySweep(locked, striped);
+    }
+
+    private Map<UUID, Money> applySweep(Map<UUID, Wallet> locked, Collection<UUID> userIds) {
+        Map<UUID, Money> swept = stripeRepository.sweep(userIds);
+        swept.forEach((userId, amount) -> {
+            Wallet wallet = locked.get(userId);
+            wallet.setBalance(wallet.getBalance().plus(amount));
+        });
+        return swept;
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.stripes.consolidate-interval-ms:5000}")
+    public void consolidate() {
+        if (ledgerService.isEnabled()) {
+            return;
+        }
+        for (UUID userId : stripeRepository.findStripedWallets()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Map<UUID, Wallet> locked = walletJdbcRepository.lockWallets(List.of(userId));
+                    if (locked.isEmpty() || applySweep(locked, List.of(userId)).isEmpty()) {
+                        return;
+                    }
+                    walletJdbcRepository.updateBalances(Map.of(userId, locked.get(userId).getBalance()));
+                });
+            } catch (RuntimeException e) {
+                log.error("Failed to consolidate stripes of wallet {}", userId, e);
+            }
+        }
+    }
+
+    public boolean isStriped(UUID userId) {
+        return !ledgerService.isEnabled() && stripeCount(userId) > 0;
+    }
+
+    private int stripeCount(UUID userId) {
+        return stripeCounts(List.of(userId)).getOrDefault(userId, 0);
+    }
+
+    private Map<UUID, Integer> stripeCounts(Collection<UUID> userIds) {
+        return stripeCounts.getAll(userIds, missing -> {
+            Map<UUID, Integer> counts = new HashMap<>(stripeRepository.countStripes(new ArrayList<>(missing)));
+            missing.forEach(userId -> counts.putIfAbsent(userId, 0));
+            return counts;
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.paypulse.wallet.archive;
+
+import com.paypulse.wallet.entity.TransactionHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistorySegmentTest {
+
+    // The sign bit set: a signed comparison would put this user first.
+    private static final UUID HIGH_USER = UUID.fromString("f0000000-0000-0000-0000-000000000001");
+    private static final UUID LOW_USER = UUID.fromString("10000000-0000-0000-0000-000000000001");
+    private static final Instant BASE = Instant.parse("2024-03-01T00:00:00.123456Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsRowsOfEveryUserNewestFirst() throws IOException {
+        List<TransactionHistory> low = rows(LOW_USER, 7);
+        List<TransactionHistory> high = rows(HIGH_USER, 5);
+        Path file = write(low, high);
+
+        // Tiny windows make headers, blocks and index entries straddle mapping boundaries.
+        for (long windowBytes : new long[]{HistorySegment.WINDOW_BYTES, 64, 7}) {
+            HistorySegment segment = HistorySegment.open(file, windowBytes);
+
+            assertThat(segment.getRows()).isEqualTo(12);
+            assertSameRows(segment.findBefore(LOW_USER, null, null, 100), low);
+            assertSameRows(segment.findBefore(HIGH_USER, null, null, 100), high);
+            assertThat(segment.findBefore(UUID.randomUUID(), null, null, 100)).isEmpty();
+        }
+    }
+
+    @Test
+    void continuesFromCursor() throws IOException {
+        List<TransactionHistory> low = rows(LOW_USER, 7);
+        HistorySegment segment = HistorySegment.open(write(low, rows(HIGH_USER, 2)), 64);
+
+        List<TransactionHistory> first = segment.findBefore(LOW_USER, null, null, 3);
+        TransactionHistory last = first.get(first.size() - 1);
+        List<TransactionHistory> rest = segment.findBefore(LOW_USER, last.getTimestamp(), last.getId(), 100);
+
+        assertSameRows(first, low.subList(0, 3));
+        assertSameRows(rest, low.subList(3, 7));
+        assertThat(segment.findBefore(LOW_USER, null, null, 0)).isEmpty();
+    }
+
+    @Test
+    void ordersRowsWithEqualTimestampsById() throws IOException {
+        UUID older = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID newer = UUID.fromString("f0000000-0000-0000-0000-000000000000");
+        List<TransactionHistory> rows = List.of(row(LOW_USER, newer, BASE, "1.00"), row(LOW_USER, older, BASE, "2.00"));
+        HistorySegment segment = HistorySegment.open(write(rows), 64);
+
+        List<TransactionHistory> found = segment.findBefore(LOW_USER, BASE, newer, 10);
+
+        assertThat(found).extracting(TransactionHistory::getId).containsExactly(older);
+    }
+
+    @Test
+    void rejectsRowsOutOfOrder() throws IOException {
+        try (HistorySegmentWriter writer = new HistorySegmentWriter(dir.resolve("unordered.seg"), 3)) {
+            writer.append(row(LOW_USER, UUID.randomUUID(), BASE, "1.00"));
+
+            assertThatThrownBy(() -> writer.append(row(LOW_USER, UUID.randomUUID(), BASE.plusSeconds(1), "1.00")))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void rejectsTruncatedAndCorruptFiles() throws IOException {
+        Path file = write(rows(LOW_USER, 4));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = dir.resolve("truncated.seg");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThatThrownBy(() -> HistorySegment.open(truncated)).isInstanceOf(IOException.class);
+
+        Path header = dir.resolve("header.seg");
+        byte[] badHeader = bytes.clone();
+        badHeader[0] ^= 0x7F;
+        Files.write(header, badHeader);
+        assertThatThrownBy(() -> HistorySegment.open(header)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void segmentKeysSortByUnsignedUserThenNewestFirst() {
+        UUID id = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID highId = UUID.fromString("ff000000-0000-0000-0000-000000000000");
+        SegmentKey lowOlder = SegmentKey.of(LOW_USER, BASE, id);
+        SegmentKey lowNewer = SegmentKey.of(LOW_USER, BASE.plusNanos(1_000), id);
+        SegmentKey lowSameTimeHighId = SegmentKey.of(LOW_USER, BASE, highId);
+        SegmentKey high = SegmentKey.of(HIGH_USER, BASE.plusSeconds(3600), id);
+
+        List<SegmentKey> keys = new ArrayList<>(List.of(high, lowOlder, SegmentKey.newestOf(HIGH_USER),
+                lowSameTimeHighId, lowNewer, SegmentKey.newestOf(LOW_USER)));
+        keys.sort(Comparator.naturalOrder());
+
+        assertThat(keys).containsExactly(SegmentKey.newestOf(LOW_USER), lowNewer, lowSameTimeHighId, lowOlder,
+                SegmentKey.newestOf(HIGH_USER), high);
+    }
+
+    @Test
+    void convertsTimestampsToMicrosAndBack() {
+        Instant beforeEpoch = Instant.parse("1969-12-31T23:59:59.999999Z");
+
+        assertThat(SegmentKey.fromMicros(SegmentKey.toMicros(BASE))).isEqualTo(BASE);
+        assertThat(SegmentKey.fromMicros(SegmentKey.toMicros(beforeEpoch))).isEqualTo(beforeEpoch);
+        assertThat(SegmentKey.toMicros(BASE.plusNanos(999))).isEqualTo(SegmentKey.toMicros(BASE));
+    }
+
+    @SafeVarargs
+    private Path write(List<TransactionHistory>... users) throws IOException {
+        Path file = dir.resolve(UUID.randomUUID() + ".seg");
+        try (HistorySegmentWriter writer = new HistorySegmentWriter(file, 3)) {
+            for (List<TransactionHistory> rows : users) {
+                for (TransactionHistory row : rows) {
+                    writer.append(row);
+                }
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    // Newest first, with negative amounts, missing and non-ASCII descriptions.
+    private static List<TransactionHistory> rows(UUID userId, int count) {
+        List<TransactionHistory> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Instant timestamp = BASE.minusSeconds(60L * i);
+            String amount = (i % 2 == 0 ? "-" : "") + (i + 1) + ".25";
+            TransactionHistory row = row(userId, new UUID(i, i), timestamp, amount);
+            row.setDescription(i % 3 == 0 ? null : "Перевод #" + i + " €");
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static TransactionHistory row(UUID userId, UUID id, Instant timestamp, String amount) {
+        return TransactionHistory.builder()
+                .id(id)
+                .userId(userId)
+                .amount(new BigDecimal(amount))
+                .description("payment")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static void assertSameRows(List<TransactionHistory> actual, List<TransactionHistory> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getId()).isEqualTo(expected.get(i).getId());
+            assertThat(actual.get(i).getUserId()).isEqualTo(expected.get(i).getUserId());
+            assertThat(actual.get(i).getAmount()).isEqualByComparingTo(expected.get(i).getAmount());
+            assertThat(actual.get(i).getDescription()).isEqualTo(expected.get(i).getDescription());
+            assertThat(actual.get(i).getTimestamp()).isEqualTo(expected.get(i).getTimestamp());
+        }
+    }
+}
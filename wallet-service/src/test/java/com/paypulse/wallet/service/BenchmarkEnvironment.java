@@ -0,0 +1,61 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.wallet.WalletServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.lifecycle.Startables;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Postgres, Kafka and Redis shared by the benchmarks of one Gradle run, and a wallet-service context on top of them.
+final class BenchmarkEnvironment {
+
+    static final String JWT_SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:15"))
+            .withDatabaseName("wallet");
+    private static final KafkaContainer KAFKA = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.4.0"));
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7"))
+            .withExposedPorts(6379);
+
+    static {
+        Startables.deepStart(POSTGRES, KAFKA, REDIS).join();
+    }
+
+    private BenchmarkEnvironment() {
+    }
+
+    // Passed as command-line arguments, which take precedence over application.yml; default properties would not.
+    static ConfigurableApplicationContext start(int poolSize, List<String> overrides) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:postgresql://" + POSTGRES.getHost() + ":"
+                        + POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/wallet?reWriteBatchedInserts=true",
+                "spring.datasource.username=" + POSTGRES.getUsername(),
+                "spring.datasource.password=" + POSTGRES.getPassword(),
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "spring.kafka.bootstrap-servers=" + KAFKA.getBootstrapServers(),
+                "spring.data.redis.host=" + REDIS.getHost(),
+                "spring.data.redis.port=" + REDIS.getMappedPort(6379),
+                "jwt.secret=" + JWT_SECRET,
+                "logging.level.com.paypulse.wallet=WARN",
+                "logging.level.com.paypulse.wallet.service.OutboxProcessor=WARN",
+                "logging.level.com.paypulse.wallet.service.OutboxService=WARN",
+                "logging.level.org.springframework.cache=WARN",
+                "logging.level.org.springframework.data.redis=WARN",
+                "logging.file.name="));
+        properties.addAll(overrides);
+        return new SpringApplicationBuilder(WalletServiceApplication.class)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    static List<String> list(String property, String defaults) {
+        return Arrays.stream(System.getProperty(property, defaults).split(",")).map(String::trim).toList();
+    }
+}
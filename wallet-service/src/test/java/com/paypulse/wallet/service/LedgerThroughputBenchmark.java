@@ -0,0 +1,127 @@
+package com.paypulse.wallet.service;
+
+import com.paypulse.common.Money;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives WalletService.credit/debit from concurrent threads against each balance engine, in a fresh application
+// context over the same Postgres, and prints operations per second with p50/p99 latency for every engine and wallet
+// count. The engines are the JPA lock path (lock), the single-statement SQL path (sql) and the sharded ledger
+// (sharded). Few wallets means hot rows, where the lock path serializes and group commit pays off.
+// Run with ./gradlew :wallet-service:ledgerBenchmark; the ledger.benchmark.* properties below tune the run.
+@Tag("benchmark")
+class LedgerThroughputBenchmark {
+
+    private static final Money CREDIT = Money.of(new BigDecimal("1.00"));
+    private static final Money DEBIT = Money.of(new BigDecimal("0.50"));
+
+    private static final Map<String, List<String>> ENGINES = Map.of(
+            "lock", List.of("wallet.ledger.mode=lock", "wallet.update-mode=jpa"),
+            "sql", List.of("wallet.ledger.mode=lock", "wallet.update-mode=sql"),
+            "sharded", List.of("wallet.ledger.mode=sharded"));
+
+    private final List<String> engines = BenchmarkEnvironment.list("ledger.benchmark.engines", "lock,sql,sharded");
+    private final List<String> walletCounts = BenchmarkEnvironment.list("ledger.benchmark.wallets", "16,10000");
+    private final int threads = Integer.getInteger("ledger.benchmark.threads", 64);
+    private final int warmupSeconds = Integer.getInteger("ledger.benchmark.warmup-seconds", 5);
+    private final int seconds = Integer.getInteger("ledger.benchmark.seconds", 20);
+
+    @Test
+    void compareEngines() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %8s %8s %12s %10s %10s %10s", "engine", "wallets", "threads", "ops/s",
+                "p50 us", "p99 us", "errors"));
+        for (String engine : engines) {
+            try (ConfigurableApplicationContext context = start(engine)) {
+                WalletService walletService = context.getBean(WalletService.class);
+                for (String wallets : walletCounts) {
+                    List<UUID> userIds = userIds(Integer.parseInt(wallets));
+                    run(walletService, userIds, warmupSeconds);
+                    Result result = run(walletService, userIds, seconds);
+                    report.add(String.format("%-8s %8s %8d %12.0f %10d %10d %10d", engine, wallets, threads,
+                            result.latency().getTotalCount() / (double) seconds,
+                            result.latency().getValueAtPercentile(50) / 1_000,
+                            result.latency().getValueAtPercentile(99) / 1_000, result.errors()));
+                    assertThat(result.latency().getTotalCount()).isPositive();
+                }
+            }
+        }
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private ConfigurableApplicationContext start(String engine) {
+        List<String> engineProperties = ENGINES.get(engine);
+        if (engineProperties == null) {
+            throw new IllegalArgumentException("Unknown engine " + engine + ", expected one of " + ENGINES.keySet());
+        }
+        return BenchmarkEnvironment.start(Math.max(10, threads), engineProperties);
+    }
+
+    // Every iteration is a credit followed by a smaller debit of a random wallet, so balances only grow and no
+    // debit is rejected for insufficient funds. Each call is timed on its own; every worker fills its own histogram.
+    private Result run(WalletService walletService, List<UUID> userIds, int durationSeconds) throws Exception {
+        LongAdder errors = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Histogram>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    Histogram latency = new Histogram(3);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        UUID userId = userIds.get(random.nextInt(userIds.size()));
+                        try {
+                            long start = System.nanoTime();
+                            walletService.credit(userId, CREDIT, "benchmark", "DEPOSIT");
+                            long credited = System.nanoTime();
+                            walletService.debit(userId, DEBIT, "benchmark", "WITHDRAW");
+                            latency.recordValue(credited - start);
+                            latency.recordValue(System.nanoTime() - credited);
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                        }
+                    }
+                    return latency;
+                }));
+            }
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            running.set(false);
+            Histogram latency = new Histogram(3);
+            for (Future<Histogram> worker : workers) {
+                latency.add(worker.get());
+            }
+            return new Result(latency, errors.sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<UUID> userIds(int count) {
+        List<UUID> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+        return userIds;
+    }
+
+    private record Result(Histogram latency, long errors) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.paypulse.wallet.service;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Starts wallet-service once with platform request threads and once with virtual ones (spring.threads.virtual.enabled)
+// and drives POST /wallet/deposit over HTTP from many concurrent callers, each with its own user token. Prints
+// requests per second, p50/p99 latency, errors, peak heap and peak platform thread count for each mode. Both modes
+// use the same connection pool, so the difference is how Tomcat parks requests waiting for it.
+// Run with ./gradlew :wallet-service:threadsBenchmark; the threads.benchmark.* properties below tune the run.
+@Tag("benchmark")
+class ThreadModelBenchmark {
+
+    private static final String DEPOSIT = "{\"amount\":1.00,\"description\":\"benchmark\"}";
+
+    private final List<String> modes = BenchmarkEnvironment.list("threads.benchmark.modes", "platform,virtual");
+    private final int callers = Integer.getInteger("threads.benchmark.callers", 2000);
+    private final int poolSize = Integer.getInteger("threads.benchmark.pool-size", 50);
+    private final int warmupSeconds = Integer.getInteger("threads.benchmark.warmup-seconds", 10);
+    private final int seconds = Integer.getInteger("threads.benchmark.seconds", 30);
+
+    @Test
+    void compareThreadModels() throws Exception {
+        List<String> tokens = tokens(callers);
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %8s %10s %10s %10s %10s %12s %12s", "mode", "callers", "req/s", "p50 ms",
+                "p99 ms", "errors", "heap MB", "threads"));
+        for (String mode : modes) {
+            try (ConfigurableApplicationContext context = start(mode)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build();
+                URI uri = URI.create("http://localhost:" + port + "/wallet/deposit");
+                run(client, uri, tokens, warmupSeconds);
+
+                System.gc();
+                List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                        .filter(pool -> pool.getType() == MemoryType.HEAP)
+                        .toList();
+                heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+                ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+                threadBean.resetPeakThreadCount();
+
+                Result result = run(client, uri, tokens, seconds);
+                long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+                report.add(String.format("%-9s %8d %10.0f %10d %10d %10d %12d %12d", mode, callers,
+                        result.latency().getTotalCount() / (double) seconds,
+                        result.latency().getValueAtPercentile(50) / 1_000_000,
+                        result.latency().getValueAtPercentile(99) / 1_000_000, result.errors(),
+                        peakHeap / (1024 * 1024), threadBean.getPeakThreadCount()));
+                assertThat(result.latency().getTotalCount()).isPositive();
+            }
+        }
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private ConfigurableApplicationContext start(String mode) {
+        if (!mode.equals("platform") && !mode.equals("virtual")) {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", expected platform or virtual");
+        }
+        return BenchmarkEnvironment.start(poolSize, List.of(
+                "spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "wallet.ledger.mode=lock",
+                "wallet.update-mode=sql"));
+    }
+
+    // Callers are virtual threads in both modes, so only the server side changes between runs. Every caller
+    // deposits into its own wallet in a loop; a non-2xx response or a transport failure counts as an error.
+    private Result run(HttpClient client, URI uri, List<String> tokens, int durationSeconds) throws Exception {
+        LongAdder errors = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<Histogram>> workers = new ArrayList<>();
+            for (String token : tokens) {
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString(DEPOSIT))
+                        .build();
+                workers.add(executor.submit(() -> {
+                    Histogram latency = new Histogram(3);
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() / 100 == 2) {
+                                latency.recordValue(System.nanoTime() - start);
+                            } else {
+                                errors.increment();
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                        }
+                    }
+                    return latency;
+                }));
+            }
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            running.set(false);
+            Histogram latency = new Histogram(3);
+            for (Future<Histogram> worker : workers) {
+                latency.add(worker.get());
+            }
+            return new Result(latency, errors.sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> tokens(int count) {
+        Key key = Keys.hmacShaKeyFor(BenchmarkEnvironment.JWT_SECRET.getBytes(StandardCharsets.UTF_8));
+        Date expiration = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(Jwts.builder()
+                    .setSubject(UUID.randomUUID().toString())
+                    .claim("username", "benchmark-" + i)
+                    .claim("roles", "USER")
+                    .setExpiration(expiration)
+                    .signWith(key)
+                    .compact());
+        }
+        return tokens;
+    }
+
+    private record Result(Histogram latency, long errors) {
+    }
+}